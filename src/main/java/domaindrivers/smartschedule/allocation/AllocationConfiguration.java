@@ -6,8 +6,13 @@ import domaindrivers.smartschedule.allocation.cashflow.CashFlowFacade;
 import domaindrivers.smartschedule.availability.AvailabilityFacade;
 import domaindrivers.smartschedule.shared.EventsPublisher;
 import domaindrivers.smartschedule.simulation.SimulationFacade;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Clock;
 
@@ -24,6 +29,21 @@ class AllocationConfiguration {
         return new AllocationFacade(projectAllocationsRepository, availabilityFacade, capabilityFinder, eventsPublisher, clock);
     }
 
+    //relational storage writes changed allocations and demands row by row instead of rewriting jsonb columns
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "allocation.storage", havingValue = "relational")
+    ProjectAllocationsRepository jdbcProjectAllocationsRepository(JdbcTemplate jdbcTemplate) {
+        return new JdbcProjectAllocationsRepository(jdbcTemplate);
+    }
+
+    //projects saved with the default (jsonb) storage are copied into the relational tables once, when the application starts
+    @Bean
+    @ConditionalOnProperty(name = "allocation.storage", havingValue = "relational")
+    ProjectAllocationsBackfill projectAllocationsBackfill(JpaProjectAllocationsRepository jsonbRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        return new ProjectAllocationsBackfill(jsonbRepository, new JdbcProjectAllocationsRepository(jdbcTemplate), jdbcTemplate, new TransactionTemplate(transactionManager));
+    }
+
     @Bean
     PotentialTransfersService potentialTransfersService(
             CashFlowFacade cashFlowFacade, ProjectAllocationsRepository projectAllocationsRepository) {
@@ -3,6 +3,7 @@ package domaindrivers.smartschedule.allocation;
 import domaindrivers.smartschedule.allocation.capabilityscheduling.*;
 import domaindrivers.smartschedule.allocation.cashflow.CashFlowFacade;
 import domaindrivers.smartschedule.availability.AvailabilityFacade;
+import domaindrivers.smartschedule.availability.BulkBlockadeResult;
 import domaindrivers.smartschedule.availability.Owner;
 import domaindrivers.smartschedule.availability.ResourceId;
 import domaindrivers.smartschedule.shared.CapabilitySelector;
@@ -13,9 +14,8 @@ import jakarta.transaction.Transactional;
 
 import java.time.Clock;
 import java.time.Instant;
-import java.util.Optional;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -66,6 +66,57 @@ public class AllocationFacade {
         return event.map(CapabilitiesAllocated::allocatedCapabilityId);
     }
 
+    //all or nothing on availability: nothing is blocked when any of the capabilities is unknown or requested outside the project's slot;
+    //when any of them can't be blocked CapabilitiesNotAvailableException is thrown, rolling back the blockades made so far
+    @Transactional
+    public List<UUID> allocateAllToProject(ProjectAllocationsId projectId, List<RequestedAllocation> requested) {
+        Map<AllocatableCapabilityId, AllocatableCapabilitySummary> capabilities = capabilityFinder
+                .findById(requested.stream().map(RequestedAllocation::allocatableCapabilityId).distinct().toList())
+                .all()
+                .stream()
+                .collect(Collectors.toMap(AllocatableCapabilitySummary::id, Function.identity()));
+        if (requested.isEmpty() || !capabilities.keySet().containsAll(requested.stream().map(RequestedAllocation::allocatableCapabilityId).toList())) {
+            return List.of();
+        }
+        ProjectAllocations allocations = projectAllocationsRepository.findById(projectId).orElseThrow();
+        if (!requested.stream().allMatch(r -> allocations.withinProjectTimeSlot(r.timeSlot()))) {
+            return List.of();
+        }
+        blockAll(requested, Owner.of(projectId.id()));
+        Optional<CapabilitiesAllocatedInBatch> event = allocations.allocateAll(requested
+                .stream()
+                .map(r -> new AllocatedCapability(r.allocatableCapabilityId(), capabilities.get(r.allocatableCapabilityId()).capabilities(), r.timeSlot()))
+                .toList(), Instant.now(clock));
+        projectAllocationsRepository.save(allocations);
+        return event.map(CapabilitiesAllocatedInBatch::allocatedCapabilityIds).orElse(List.of());
+    }
+
+    //a bulk blockade takes one slot per resource, so the same capability requested for more slots goes to later rounds
+    private void blockAll(List<RequestedAllocation> requested, Owner owner) {
+        List<Map<ResourceId, TimeSlot>> rounds = new ArrayList<>();
+        Map<ResourceId, AllocatableCapabilityId> capabilities = new HashMap<>();
+        for (RequestedAllocation allocation : requested) {
+            ResourceId resourceId = allocation.allocatableCapabilityId().toAvailabilityResourceId();
+            capabilities.put(resourceId, allocation.allocatableCapabilityId());
+            Map<ResourceId, TimeSlot> round = rounds
+                    .stream()
+                    .filter(r -> !r.containsKey(resourceId))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        Map<ResourceId, TimeSlot> next = new HashMap<>();
+                        rounds.add(next);
+                        return next;
+                    });
+            round.put(resourceId, allocation.timeSlot());
+        }
+        for (Map<ResourceId, TimeSlot> round : rounds) {
+            BulkBlockadeResult result = availabilityFacade.blockAll(round, owner);
+            if (!result.successful()) {
+                throw new CapabilitiesNotAvailableException(result.conflicts().stream().map(capabilities::get).collect(Collectors.toSet()));
+            }
+        }
+    }
+
     private Optional<CapabilitiesAllocated> allocate(ProjectAllocationsId projectId, AllocatableCapabilityId allocatableCapabilityId, CapabilitySelector capability, TimeSlot timeSlot) {
         ProjectAllocations allocations = projectAllocationsRepository.findById(projectId).orElseThrow();
         Optional<CapabilitiesAllocated> event = allocations.allocate(allocatableCapabilityId, capability, timeSlot, Instant.now(clock));
@@ -114,6 +165,7 @@ public class AllocationFacade {
     public void editProjectDates(ProjectAllocationsId projectId, TimeSlot fromTo) {
         ProjectAllocations projectAllocations = projectAllocationsRepository.findById(projectId).orElseThrow();
         Optional<ProjectAllocationScheduled> projectDatesSet = projectAllocations.defineSlot(fromTo, clock.instant());
+        projectAllocationsRepository.save(projectAllocations);
         projectDatesSet.ifPresent(eventsPublisher::publish);
     }
 
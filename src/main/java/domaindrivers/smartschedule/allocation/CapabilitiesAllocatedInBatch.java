@@ -0,0 +1,15 @@
+package domaindrivers.smartschedule.allocation;
+
+
+import domaindrivers.smartschedule.shared.PrivateEvent;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+record CapabilitiesAllocatedInBatch(UUID eventId, List<UUID> allocatedCapabilityIds, ProjectAllocationsId projectId, Demands missingDemands, Instant occurredAt) implements PrivateEvent {
+
+    public CapabilitiesAllocatedInBatch(List<UUID> allocatedCapabilityIds, ProjectAllocationsId projectId, Demands missingDemands, Instant occuredAt) {
+        this(UUID.randomUUID(), allocatedCapabilityIds, projectId, missingDemands, occuredAt);
+    }
+}
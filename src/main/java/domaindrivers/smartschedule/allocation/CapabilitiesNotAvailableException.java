@@ -0,0 +1,20 @@
+package domaindrivers.smartschedule.allocation;
+
+import domaindrivers.smartschedule.allocation.capabilityscheduling.AllocatableCapabilityId;
+
+import java.util.Set;
+
+//some of the capabilities allocated at once could not be blocked; thrown so that blockades made so far are rolled back with the transaction
+public class CapabilitiesNotAvailableException extends RuntimeException {
+
+    private final Set<AllocatableCapabilityId> notAvailable;
+
+    CapabilitiesNotAvailableException(Set<AllocatableCapabilityId> notAvailable) {
+        super("Capabilities not available: " + notAvailable);
+        this.notAvailable = Set.copyOf(notAvailable);
+    }
+
+    public Set<AllocatableCapabilityId> notAvailable() {
+        return notAvailable;
+    }
+}
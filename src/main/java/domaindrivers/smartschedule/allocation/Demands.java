@@ -1,7 +1,9 @@
 package domaindrivers.smartschedule.allocation;
 
 
+import domaindrivers.smartschedule.shared.CapabilitySelector;
 import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilityCatalogue;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 
 import java.util.ArrayList;
@@ -26,18 +28,25 @@ public record Demands(List<Demand> all) {
     }
 
     Demands missingDemands(Allocations allocations) {
+        List<AllocatedCapability> allocated = List.copyOf(allocations.all());
+        List<CapabilitySelector.Compiled> selectors = allocated
+                .stream()
+                .map(ar -> ar.capability().compile())
+                .toList();
         return new Demands(all
                 .stream()
-                .filter(d -> !satisfiedBy(d, allocations))
+                .filter(d -> !satisfiedBy(d, allocated, selectors))
                 .toList());
     }
 
-    boolean satisfiedBy(Demand d, Allocations allocations) {
-        return allocations
-                .all()
-                .stream()
-                .anyMatch(ar -> ar.capability().canPerform(d.capability()) && d.slot().within(ar.timeSlot()));
-
+    private boolean satisfiedBy(Demand d, List<AllocatedCapability> allocated, List<CapabilitySelector.Compiled> selectors) {
+        int capabilityId = CapabilityCatalogue.find(d.capability());
+        for (int i = 0; i < allocated.size(); i++) {
+            if (selectors.get(i).canPerform(capabilityId) && d.slot().within(allocated.get(i).timeSlot())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     Demands withNew(Demands newDemands) {
@@ -0,0 +1,76 @@
+package domaindrivers.smartschedule.allocation;
+
+import domaindrivers.smartschedule.shared.capability.Capability;
+
+import java.util.*;
+
+//number of allocations satisfying each demand; an allocation change touches only demands of the capabilities it can perform
+class DemandsSatisfaction {
+
+    private final List<Demand> demands = new ArrayList<>();
+    private final Map<Capability, List<Integer>> demandsByCapability = new HashMap<>();
+    private final BitSet missing = new BitSet();
+    private int[] satisfiers = new int[0];
+
+    static DemandsSatisfaction of(Demands demands, Allocations allocations) {
+        DemandsSatisfaction satisfaction = new DemandsSatisfaction();
+        satisfaction.index(demands.all());
+        allocations.all().forEach(satisfaction::added);
+        return satisfaction;
+    }
+
+    void added(AllocatedCapability allocatedCapability) {
+        count(allocatedCapability, 1);
+    }
+
+    void removed(AllocatedCapability allocatedCapability) {
+        count(allocatedCapability, -1);
+    }
+
+    void demandsAdded(List<Demand> newDemands, Set<AllocatedCapability> allocations) {
+        int first = demands.size();
+        index(newDemands);
+        for (int i = first; i < demands.size(); i++) {
+            Demand demand = demands.get(i);
+            for (AllocatedCapability allocatedCapability : allocations) {
+                if (satisfies(allocatedCapability, demand)) {
+                    change(i, 1);
+                }
+            }
+        }
+    }
+
+    //in the order demands were scheduled
+    Demands missing() {
+        return new Demands(missing.stream().mapToObj(demands::get).toList());
+    }
+
+    private void index(List<Demand> newDemands) {
+        int first = demands.size();
+        demands.addAll(newDemands);
+        satisfiers = Arrays.copyOf(satisfiers, demands.size());
+        for (int i = first; i < demands.size(); i++) {
+            demandsByCapability.computeIfAbsent(demands.get(i).capability(), c -> new ArrayList<>()).add(i);
+            missing.set(i);
+        }
+    }
+
+    private void count(AllocatedCapability allocatedCapability, int delta) {
+        for (Capability capability : allocatedCapability.capability().capabilities()) {
+            for (int i : demandsByCapability.getOrDefault(capability, List.of())) {
+                if (demands.get(i).slot().within(allocatedCapability.timeSlot())) {
+                    change(i, delta);
+                }
+            }
+        }
+    }
+
+    private void change(int demand, int delta) {
+        satisfiers[demand] += delta;
+        missing.set(demand, satisfiers[demand] == 0);
+    }
+
+    private static boolean satisfies(AllocatedCapability allocatedCapability, Demand demand) {
+        return allocatedCapability.capability().canPerform(demand.capability()) && demand.slot().within(allocatedCapability.timeSlot());
+    }
+}
@@ -0,0 +1,259 @@
+package domaindrivers.smartschedule.allocation;
+
+import domaindrivers.smartschedule.allocation.capabilityscheduling.AllocatableCapabilityId;
+import domaindrivers.smartschedule.shared.CapabilitySelector;
+import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.sql.Timestamp.from;
+
+//allocations and demands kept as child rows; a save writes only what changed since the aggregate was loaded or last saved
+//within the same transaction, aggregates without such a snapshot (new ones, or loaded in another transaction) are rewritten whole
+class JdbcProjectAllocationsRepository implements ProjectAllocationsRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    //identity keyed, aggregates don't override equals
+    private final Map<ProjectAllocations, Snapshot> snapshots = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private record Snapshot(Allocations allocations, Demands demands, TimeSlot timeSlot) {
+    }
+
+    private record Header(ProjectAllocationsId id, TimeSlot timeSlot) {
+    }
+
+    JdbcProjectAllocationsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<ProjectAllocations> findById(ProjectAllocationsId projectId) {
+        return findAllById(Set.of(projectId)).stream().findFirst();
+    }
+
+    @Override
+    public List<ProjectAllocations> findAllById(Set<ProjectAllocationsId> projectIds) {
+        UUID[] ids = projectIds.stream().map(ProjectAllocationsId::id).toArray(UUID[]::new);
+        return load(headers(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select * from project_allocations_headers where project_allocations_id = any (?)");
+            statement.setArray(1, connection.createArrayOf("uuid", ids));
+            return statement;
+        }));
+    }
+
+    @Override
+    public List<ProjectAllocations> findAll() {
+        return load(headers(connection -> connection.prepareStatement("select * from project_allocations_headers")));
+    }
+
+    @Override
+    public List<ProjectAllocations> findAllContainingDate(Instant when) {
+        return load(headers(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select * from project_allocations_headers where from_date <= ? and to_date > ?");
+            statement.setTimestamp(1, from(when));
+            statement.setTimestamp(2, from(when));
+            return statement;
+        }));
+    }
+
+    @Override
+    public ProjectAllocations save(ProjectAllocations project) {
+        UUID projectId = project.id().id();
+        Snapshot previous = snapshots.get(project);
+        if (previous == null) {
+            saveHeader(project);
+            jdbcTemplate.update("delete from project_allocated_capabilities where project_allocations_id = ?", projectId);
+            jdbcTemplate.update("delete from project_demands where project_allocations_id = ?", projectId);
+            insertAllocations(projectId, project.allocations().all());
+            insertDemands(projectId, project.demands().all(), 0);
+        } else {
+            if (!Objects.equals(previous.timeSlot(), project.timeSlot())) {
+                saveHeader(project);
+            }
+            if (previous.allocations() != project.allocations()) {
+                saveChanged(projectId, previous.allocations().all(), project.allocations().all());
+            }
+            if (previous.demands() != project.demands()) {
+                saveChanged(projectId, previous.demands().all(), project.demands().all());
+            }
+        }
+        remember(project);
+        return project;
+    }
+
+    private void saveChanged(UUID projectId, Set<AllocatedCapability> previous, Set<AllocatedCapability> current) {
+        List<AllocatedCapability> removed = previous.stream().filter(ac -> !current.contains(ac)).toList();
+        List<AllocatedCapability> added = current.stream().filter(ac -> !previous.contains(ac)).toList();
+        jdbcTemplate.batchUpdate("""
+                        delete from project_allocated_capabilities
+                        where project_allocations_id = ? and allocatable_capability_id = ? and from_date = ? and to_date = ?
+                        """,
+                removed,
+                BATCH_SIZE,
+                (ps, ac) -> {
+                    ps.setObject(1, projectId);
+                    ps.setObject(2, ac.allocatedCapabilityID().getId());
+                    ps.setTimestamp(3, from(ac.timeSlot().from()));
+                    ps.setTimestamp(4, from(ac.timeSlot().to()));
+                });
+        insertAllocations(projectId, added);
+    }
+
+    //demands are only ever appended, anything else rewrites them
+    private void saveChanged(UUID projectId, List<Demand> previous, List<Demand> current) {
+        if (current.size() >= previous.size() && current.subList(0, previous.size()).equals(previous)) {
+            insertDemands(projectId, current.subList(previous.size(), current.size()), previous.size());
+            return;
+        }
+        jdbcTemplate.update("delete from project_demands where project_allocations_id = ?", projectId);
+        insertDemands(projectId, current, 0);
+    }
+
+    private void saveHeader(ProjectAllocations project) {
+        TimeSlot slot = project.timeSlot();
+        jdbcTemplate.update("""
+                        insert into project_allocations_headers (project_allocations_id, from_date, to_date) values (?, ?, ?)
+                        on conflict (project_allocations_id) do update set from_date = excluded.from_date, to_date = excluded.to_date
+                        """,
+                project.id().id(),
+                slot == null ? null : from(slot.from()),
+                slot == null ? null : from(slot.to()));
+    }
+
+    private void insertAllocations(UUID projectId, Collection<AllocatedCapability> allocations) {
+        jdbcTemplate.batchUpdate("""
+                        insert into project_allocated_capabilities
+                        (project_allocations_id, allocatable_capability_id, from_date, to_date, selecting_policy, capability_names, capability_types)
+                        values (?, ?, ?, ?, ?, ?, ?)
+                        on conflict (project_allocations_id, allocatable_capability_id, from_date, to_date) do update
+                        set selecting_policy = excluded.selecting_policy, capability_names = excluded.capability_names, capability_types = excluded.capability_types
+                        """,
+                allocations,
+                BATCH_SIZE,
+                (ps, ac) -> {
+                    List<Capability> capabilities = List.copyOf(ac.capability().capabilities());
+                    ps.setObject(1, projectId);
+                    ps.setObject(2, ac.allocatedCapabilityID().getId());
+                    ps.setTimestamp(3, from(ac.timeSlot().from()));
+                    ps.setTimestamp(4, from(ac.timeSlot().to()));
+                    ps.setString(5, ac.capability().selectingPolicy().name());
+                    ps.setArray(6, ps.getConnection().createArrayOf("text", capabilities.stream().map(Capability::name).toArray()));
+                    ps.setArray(7, ps.getConnection().createArrayOf("text", capabilities.stream().map(Capability::type).toArray()));
+                });
+    }
+
+    private void insertDemands(UUID projectId, List<Demand> demands, int firstPosition) {
+        jdbcTemplate.batchUpdate("""
+                        insert into project_demands (project_allocations_id, position, capability_name, capability_type, from_date, to_date)
+                        values (?, ?, ?, ?, ?, ?)
+                        """,
+                IntStream.range(0, demands.size()).boxed().toList(),
+                BATCH_SIZE,
+                (ps, i) -> {
+                    Demand demand = demands.get(i);
+                    ps.setObject(1, projectId);
+                    ps.setInt(2, firstPosition + i);
+                    ps.setString(3, demand.capability().name());
+                    ps.setString(4, demand.capability().type());
+                    ps.setTimestamp(5, from(demand.slot().from()));
+                    ps.setTimestamp(6, from(demand.slot().to()));
+                });
+    }
+
+    private List<Header> headers(PreparedStatementCreator query) {
+        return jdbcTemplate.query(query, (rs, rowNum) -> new Header(
+                new ProjectAllocationsId(rs.getObject("project_allocations_id", UUID.class)),
+                slot(rs.getTimestamp("from_date"), rs.getTimestamp("to_date"))));
+    }
+
+    private List<ProjectAllocations> load(List<Header> headers) {
+        if (headers.isEmpty()) {
+            return List.of();
+        }
+        UUID[] ids = headers.stream().map(header -> header.id().id()).toArray(UUID[]::new);
+        Map<UUID, Set<AllocatedCapability>> allocations = new HashMap<>();
+        jdbcTemplate.query(byProjects("select * from project_allocated_capabilities where project_allocations_id = any (?)", ids),
+                rs -> {
+                    allocations.computeIfAbsent(rs.getObject("project_allocations_id", UUID.class), id -> new HashSet<>()).add(allocatedCapability(rs));
+                });
+        Map<UUID, List<Demand>> demands = new HashMap<>();
+        jdbcTemplate.query(byProjects("select * from project_demands where project_allocations_id = any (?) order by project_allocations_id, position", ids),
+                rs -> {
+                    demands.computeIfAbsent(rs.getObject("project_allocations_id", UUID.class), id -> new ArrayList<>()).add(demand(rs));
+                });
+        return headers
+                .stream()
+                .map(header -> {
+                    ProjectAllocations project = new ProjectAllocations(
+                            header.id(),
+                            new Allocations(allocations.getOrDefault(header.id().id(), new HashSet<>())),
+                            new Demands(demands.getOrDefault(header.id().id(), List.of())),
+                            header.timeSlot());
+                    remember(project);
+                    return project;
+                })
+                .toList();
+    }
+
+    //snapshots are forgotten when the transaction completes, whatever its outcome: rows may be changed by others afterwards,
+    //and without a transaction there is nothing that would forget them
+    private void remember(ProjectAllocations project) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            snapshots.remove(project);
+            return;
+        }
+        Snapshot previous = snapshots.put(project, new Snapshot(project.allocations(), project.demands(), project.timeSlot()));
+        if (previous == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshots.remove(project);
+                }
+            });
+        }
+    }
+
+    private static PreparedStatementCreator byProjects(String sql, UUID[] ids) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("uuid", ids));
+            return statement;
+        };
+    }
+
+    private static AllocatedCapability allocatedCapability(ResultSet rs) throws SQLException {
+        String[] names = (String[]) rs.getArray("capability_names").getArray();
+        String[] types = (String[]) rs.getArray("capability_types").getArray();
+        Set<Capability> capabilities = IntStream.range(0, names.length)
+                .mapToObj(i -> new Capability(names[i], types[i]))
+                .collect(Collectors.toSet());
+        return new AllocatedCapability(
+                new AllocatableCapabilityId(rs.getObject("allocatable_capability_id", UUID.class)),
+                new CapabilitySelector(capabilities, CapabilitySelector.SelectingPolicy.valueOf(rs.getString("selecting_policy"))),
+                slot(rs.getTimestamp("from_date"), rs.getTimestamp("to_date")));
+    }
+
+    private static Demand demand(ResultSet rs) throws SQLException {
+        return new Demand(
+                new Capability(rs.getString("capability_name"), rs.getString("capability_type")),
+                slot(rs.getTimestamp("from_date"), rs.getTimestamp("to_date")));
+    }
+
+    private static TimeSlot slot(Timestamp from, Timestamp to) {
+        return from == null || to == null ? null : new TimeSlot(from.toInstant(), to.toInstant());
+    }
+}
@@ -8,7 +8,7 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.Type;
 
 import java.time.Instant;
-import java.util.Optional;
+import java.util.*;
 
 @Entity(name = "project_allocations")
 class ProjectAllocations {
@@ -28,6 +28,10 @@ class ProjectAllocations {
     @AttributeOverrides({@AttributeOverride(name = "from", column = @Column(name = "from_date")), @AttributeOverride(name = "to", column = @Column(name = "to_date"))})
     private TimeSlot timeSlot;
 
+    //built on first use and kept up to date with every change afterwards
+    @Transient
+    private DemandsSatisfaction satisfaction;
+
     ProjectAllocations(ProjectAllocationsId projectId, Allocations allocations, Demands scheduledDemands, TimeSlot timeSlot) {
         this.projectId = projectId;
         this.allocations = allocations;
@@ -59,14 +63,37 @@ class ProjectAllocations {
             return Optional.empty();
         }
         allocations = newAllocations;
+        if (satisfaction != null) {
+            satisfaction.added(allocatedCapability);
+        }
         return Optional.of(new CapabilitiesAllocated(allocatedCapability.allocatedCapabilityID().getId(), projectId, missingDemands(), when));
     }
 
+    //same rules as allocating one by one, missing demands are computed once for the whole batch
+    Optional<CapabilitiesAllocatedInBatch> allocateAll(List<AllocatedCapability> requested, Instant when) {
+        Set<AllocatedCapability> all = new HashSet<>(allocations.all());
+        List<AllocatedCapability> allocated = new ArrayList<>();
+        for (AllocatedCapability allocatedCapability : requested) {
+            if (withinProjectTimeSlot(allocatedCapability.timeSlot()) && all.add(allocatedCapability)) {
+                allocated.add(allocatedCapability);
+            }
+        }
+        if (allocated.isEmpty()) {
+            return Optional.empty();
+        }
+        allocations = new Allocations(all);
+        if (satisfaction != null) {
+            allocated.forEach(satisfaction::added);
+        }
+        List<UUID> allocatedIds = allocated.stream().map(ac -> ac.allocatedCapabilityID().getId()).toList();
+        return Optional.of(new CapabilitiesAllocatedInBatch(allocatedIds, projectId, missingDemands(), when));
+    }
+
     private boolean nothingAllocated(Allocations newAllocations) {
         return newAllocations.equals(allocations);
     }
 
-    private boolean withinProjectTimeSlot(TimeSlot requestedSlot) {
+    boolean withinProjectTimeSlot(TimeSlot requestedSlot) {
         if (!hasTimeSlot()) {
             return true;
         }
@@ -78,12 +105,22 @@ class ProjectAllocations {
         if (newAllocations.equals(allocations)) {
             return Optional.empty();
         }
+        if (satisfaction != null) {
+            allocations.find(allocatedCapabilityId).ifPresent(satisfaction::removed);
+            newAllocations.all()
+                    .stream()
+                    .filter(leftover -> leftover.allocatedCapabilityID().equals(allocatedCapabilityId) && !allocations.all().contains(leftover))
+                    .forEach(satisfaction::added);
+        }
         this.allocations = newAllocations;
         return Optional.of(new CapabilityReleased(projectId, missingDemands(), when));
     }
 
     Demands missingDemands() {
-        return demands.missingDemands(allocations);
+        if (satisfaction == null) {
+            satisfaction = DemandsSatisfaction.of(demands, allocations);
+        }
+        return satisfaction.missing();
     }
 
     Demands demands() {
@@ -105,6 +142,9 @@ class ProjectAllocations {
 
     Optional<ProjectAllocationsDemandsScheduled> addDemands(Demands newDemands, Instant when) {
         this.demands = demands.withNew(newDemands);
+        if (satisfaction != null) {
+            satisfaction.demandsAdded(newDemands.all(), allocations.all());
+        }
         return Optional.of(new ProjectAllocationsDemandsScheduled(projectId, missingDemands(), when));
     }
 
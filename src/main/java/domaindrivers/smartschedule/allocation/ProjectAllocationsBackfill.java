@@ -0,0 +1,67 @@
+package domaindrivers.smartschedule.allocation;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+//copies projects kept in jsonb columns (the default storage) into the relational tables, once, when switching to relational storage;
+//projects which already have a header were written by the relational repository since and are left as they are
+//copied in chunks, each in a transaction of its own; instances starting at the same time take turns on an advisory lock
+class ProjectAllocationsBackfill {
+
+    static final String MIGRATION = "project_allocations_relational";
+    private static final int CHUNK_SIZE = 500;
+
+    private final JpaProjectAllocationsRepository jsonbRepository;
+    private final JdbcProjectAllocationsRepository relationalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+
+    ProjectAllocationsBackfill(JpaProjectAllocationsRepository jsonbRepository, JdbcProjectAllocationsRepository relationalRepository, JdbcTemplate jdbcTemplate, TransactionTemplate transactions) {
+        this.jsonbRepository = jsonbRepository;
+        this.relationalRepository = relationalRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = transactions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onStartup() {
+        backfill();
+    }
+
+    int backfill() {
+        Integer done = jdbcTemplate.queryForObject("select count(*) from schema_migrations where name = ?", Integer.class, MIGRATION);
+        if (done != null && done > 0) {
+            return 0;
+        }
+        int copied = 0;
+        for (int chunk = copyChunk(); chunk > 0; chunk = copyChunk()) {
+            copied += chunk;
+        }
+        jdbcTemplate.update("insert into schema_migrations (name) values (?) on conflict do nothing", MIGRATION);
+        return copied;
+    }
+
+    private int copyChunk() {
+        Integer copied = transactions.execute(status -> {
+            jdbcTemplate.query("select pg_advisory_xact_lock(hashtext(?))", (ResultSetExtractor<Void>) rs -> null, MIGRATION);
+            List<ProjectAllocationsId> missing = jdbcTemplate.queryForList("""
+                                    select p.project_allocations_id from project_allocations p
+                                    where not exists (select 1 from project_allocations_headers h where h.project_allocations_id = p.project_allocations_id)
+                                    limit ?
+                                    """,
+                            UUID.class, CHUNK_SIZE)
+                    .stream()
+                    .map(ProjectAllocationsId::new)
+                    .toList();
+            jsonbRepository.findAllById(missing).forEach(relationalRepository::save);
+            return missing.size();
+        });
+        return copied == null ? 0 : copied;
+    }
+}
@@ -0,0 +1,7 @@
+package domaindrivers.smartschedule.allocation;
+
+import domaindrivers.smartschedule.allocation.capabilityscheduling.AllocatableCapabilityId;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+public record RequestedAllocation(AllocatableCapabilityId allocatableCapabilityId, TimeSlot timeSlot) {
+}
@@ -2,14 +2,12 @@ package domaindrivers.smartschedule.allocation.capabilityscheduling;
 
 
 import domaindrivers.smartschedule.shared.CapabilitySelector;
-import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilitySet;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import io.hypersistence.utils.hibernate.type.json.JsonType;
 import jakarta.persistence.*;
 import org.hibernate.annotations.Type;
 
-import java.util.Set;
-
 
 @Entity(name = "allocatable_capabilities")
 class AllocatableCapability {
@@ -31,6 +29,9 @@ class AllocatableCapability {
     })
     private TimeSlot timeSlot;
 
+    @Transient
+    private CapabilitySelector.Compiled compiledCapabilities;
+
     AllocatableCapability(AllocatableResourceId resourceId, CapabilitySelector possibleCapabilities, TimeSlot timeSlot) {
         this.resourceId = resourceId;
         this.possibleCapabilities = possibleCapabilities;
@@ -44,8 +45,11 @@ class AllocatableCapability {
         return id;
     }
 
-    boolean canPerform(Set<Capability> capabilities) {
-        return capabilities().canPerform(capabilities);
+    boolean canPerform(CapabilitySet capabilities) {
+        if (compiledCapabilities == null) {
+            compiledCapabilities = possibleCapabilities.compile();
+        }
+        return compiledCapabilities.canPerform(capabilities);
     }
 
     AllocatableResourceId resourceId() {
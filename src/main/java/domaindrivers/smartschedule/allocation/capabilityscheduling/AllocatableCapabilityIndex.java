@@ -0,0 +1,30 @@
+package domaindrivers.smartschedule.allocation.capabilityscheduling;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+//one row per capability of a selector, so lookups by (name, type) use the slot range index instead of unnesting every selector;
+//rows are copied from flushed allocatable capabilities, so dates are stored exactly as the entity wrote them
+class AllocatableCapabilityIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AllocatableCapabilityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    void add(List<AllocatableCapabilityId> flushed) {
+        jdbcTemplate.batchUpdate("""
+                        insert into allocatable_capability_index (capability_name, capability_type, from_date, to_date, allocatable_capability_id)
+                        select o.obj ->> 'name', o.obj ->> 'type', ac.from_date, ac.to_date, ac.id
+                        from allocatable_capabilities ac
+                        cross join lateral jsonb_array_elements(ac.possible_capabilities -> 'capabilities') as o(obj)
+                        where ac.id = ?
+                        on conflict do nothing
+                        """,
+                flushed,
+                1000,
+                (ps, id) -> ps.setObject(1, id.getId()));
+    }
+}
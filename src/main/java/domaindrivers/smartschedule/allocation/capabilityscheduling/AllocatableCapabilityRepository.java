@@ -12,16 +12,17 @@ import java.util.UUID;
 interface AllocatableCapabilityRepository extends JpaRepository<AllocatableCapability, AllocatableCapabilityId> {
 
     @Query(value = "SELECT ac.*\n" +
-            "FROM allocatable_capabilities ac \n" +
-            "CROSS JOIN LATERAL jsonb_array_elements(ac.possible_capabilities -> 'capabilities') AS o(obj)\n" +
-            "WHERE o.obj ->> 'name' = ?1 AND o.obj ->> 'type' = ?2 AND ac.from_date <= ?3 and ac.to_date >= ?4", nativeQuery = true)
+            "FROM allocatable_capability_index i \n" +
+            "JOIN allocatable_capabilities ac ON ac.id = i.allocatable_capability_id\n" +
+            "WHERE i.capability_name = ?1 AND i.capability_type = ?2\n" +
+            "AND tsrange(i.from_date, i.to_date, '[]') @> tsrange(cast(?3 as timestamp), cast(?4 as timestamp), '[]')", nativeQuery = true)
     List<AllocatableCapability> findByCapabilityWithin(String name, String type, Instant from, Instant to);
 
 
     @Query(value = "SELECT ac.*\n" +
             "FROM allocatable_capabilities ac \n" +
-            "CROSS JOIN LATERAL jsonb_array_elements(ac.possible_capabilities -> 'capabilities') AS o(obj)\n" +
-            "WHERE ac.resource_id = ?1 AND o.obj ->> 'name' = ?2 AND o.obj ->> 'type' = ?3 AND ac.from_date = ?4 and ac.to_date = ?5", nativeQuery = true)
+            "JOIN allocatable_capability_index i ON i.allocatable_capability_id = ac.id\n" +
+            "WHERE ac.resource_id = ?1 AND i.capability_name = ?2 AND i.capability_type = ?3 AND ac.from_date = ?4 and ac.to_date = ?5", nativeQuery = true)
     Optional<AllocatableCapability> findByResourceIdAndCapabilityAndTimeSlot(UUID allocatableResourceId, String name, String type, Instant from, Instant to);
 
     @Query(value = "SELECT ac.*\n" +
@@ -1,15 +1,21 @@
 package domaindrivers.smartschedule.allocation.capabilityscheduling;
 
 import domaindrivers.smartschedule.availability.AvailabilityFacade;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @Configuration
 class CapabilityPlanningConfiguration {
 
+    //slots of more segments than this are imported with COPY instead of batched inserts
+    @Value("${capability-scheduling.import-threshold-segments:10000}")
+    private long importThresholdInSegments;
+
     @Bean
-    CapabilityScheduler capabilityScheduler(AvailabilityFacade availabilityFacade, AllocatableCapabilityRepository allocatableResourceRepository) {
-        return new CapabilityScheduler(availabilityFacade, allocatableResourceRepository);
+    CapabilityScheduler capabilityScheduler(AvailabilityFacade availabilityFacade, AllocatableCapabilityRepository allocatableResourceRepository, JdbcTemplate jdbcTemplate) {
+        return new CapabilityScheduler(availabilityFacade, allocatableResourceRepository, new AllocatableCapabilityIndex(jdbcTemplate), importThresholdInSegments);
     }
 
     @Bean
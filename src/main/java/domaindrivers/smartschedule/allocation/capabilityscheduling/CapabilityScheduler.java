@@ -1,22 +1,32 @@
 package domaindrivers.smartschedule.allocation.capabilityscheduling;
 
 import domaindrivers.smartschedule.availability.AvailabilityFacade;
+import domaindrivers.smartschedule.availability.ResourceId;
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
 import domaindrivers.smartschedule.shared.CapabilitySelector;
 import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilityCatalogue;
+import domaindrivers.smartschedule.shared.capability.CapabilitySet;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import jakarta.transaction.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class CapabilityScheduler {
 
     private final AvailabilityFacade availabilityFacade;
     private final AllocatableCapabilityRepository allocatableResourceRepository;
+    private final AllocatableCapabilityIndex allocatableCapabilityIndex;
+    private final long importThresholdInSegments;
 
-    public CapabilityScheduler(AvailabilityFacade availabilityFacade, AllocatableCapabilityRepository allocatableResourceRepository) {
+    CapabilityScheduler(AvailabilityFacade availabilityFacade, AllocatableCapabilityRepository allocatableResourceRepository, AllocatableCapabilityIndex allocatableCapabilityIndex, long importThresholdInSegments) {
         this.availabilityFacade = availabilityFacade;
         this.allocatableResourceRepository = allocatableResourceRepository;
+        this.allocatableCapabilityIndex = allocatableCapabilityIndex;
+        this.importThresholdInSegments = importThresholdInSegments;
     }
 
     @Transactional
@@ -33,27 +43,43 @@ public class CapabilityScheduler {
                 resources
                         .stream()
                         .map(resource -> new AllocatableCapability(resource, CapabilitySelector.canJustPerform(capability), timeSlot)).toList();
-        allocatableResourceRepository.saveAll(allocatableCapability);
-        allocatableCapability.forEach(
-                resource -> availabilityFacade.createResourceSlots(resource.id().toAvailabilityResourceId(), timeSlot));
+        save(allocatableCapability);
+        Map<ResourceId, TimeSlot> slots = allocatableCapability
+                .stream()
+                .collect(Collectors.toMap(resource -> resource.id().toAvailabilityResourceId(), resource -> timeSlot));
+        if (segmentsOf(slots.size(), timeSlot) > importThresholdInSegments) {
+            availabilityFacade.importResourceSlots(slots);
+        } else {
+            slots.forEach(availabilityFacade::createResourceSlots);
+        }
         return allocatableCapability
                 .stream()
                 .map(AllocatableCapability::id)
                 .toList();
     }
 
+    //streaming segments to the database pays off only for large loads, smaller ones are inserted in batches
+    private static long segmentsOf(int resources, TimeSlot timeSlot) {
+        return resources * timeSlot.duration().toMinutes() / SegmentInMinutes.defaultSegment().value();
+    }
+
     private List<AllocatableCapabilityId> createAllocatableResources(AllocatableResourceId resourceId, List<CapabilitySelector> capabilities, TimeSlot timeSlot) {
         List<AllocatableCapability> allocatableResources = capabilities
                 .stream()
                 .map(capability -> new AllocatableCapability(resourceId, capability, timeSlot))
                 .toList();
-        allocatableResourceRepository.saveAll(allocatableResources);
+        save(allocatableResources);
         return allocatableResources
                 .stream()
                 .map(AllocatableCapability::id)
                 .toList();
     }
 
+    private void save(List<AllocatableCapability> allocatableCapabilities) {
+        allocatableResourceRepository.saveAllAndFlush(allocatableCapabilities);
+        allocatableCapabilityIndex.add(allocatableCapabilities.stream().map(AllocatableCapability::id).toList());
+    }
+
     public AllocatableCapabilityId findResourceCapabilities(AllocatableResourceId resourceId, Capability capability, TimeSlot period) {
         return allocatableResourceRepository
                 .findByResourceIdAndCapabilityAndTimeSlot(resourceId.id(), capability.name(), capability.type(), period.from(), period.to())
@@ -62,10 +88,11 @@ public class CapabilityScheduler {
     }
 
     AllocatableCapabilityId findResourceCapabilities(AllocatableResourceId allocatableResourceId, Set<Capability> capabilities, TimeSlot timeSlot) {
+        CapabilitySet required = CapabilityCatalogue.setOf(capabilities);
         return allocatableResourceRepository
                 .findByResourceIdAndTimeSlot(allocatableResourceId.id(), timeSlot.from(), timeSlot.to())
                 .stream()
-                .filter(ac -> ac.canPerform(capabilities))
+                .filter(ac -> ac.canPerform(required))
                 .map(AllocatableCapability::id)
                 .findFirst()
                 .orElse(null);
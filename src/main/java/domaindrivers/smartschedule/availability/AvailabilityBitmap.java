@@ -0,0 +1,301 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.availability.segment.Segments;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+//one resource, one UTC day: which segments exist (bitmap) and who holds them (run-lengths)
+class AvailabilityBitmap {
+
+    static final int MINUTES_IN_DAY = 24 * 60;
+    private static final int RUN_SIZE_IN_BYTES = 4 + 4 + 8 + 8 + 1;
+
+    private final ResourceId resourceId;
+    private final ResourceId resourceParentId;
+    private final Instant day;
+    private final int segmentInMinutes;
+    private final BitSet segments;
+    private final Blockade[] blockades;
+    private final int version;
+    //changes of free segments since loaded, for the rollups of the parent
+    private final Map<TimeSlot, Integer> freeChanges = new HashMap<>();
+
+    AvailabilityBitmap(ResourceId resourceId, ResourceId resourceParentId, Instant day, int segmentInMinutes,
+                       BitSet segments, Blockade[] blockades, int version) {
+        if (MINUTES_IN_DAY % segmentInMinutes != 0) {
+            throw new IllegalArgumentException("Segment of " + segmentInMinutes + " minutes does not divide a day");
+        }
+        this.resourceId = resourceId;
+        this.resourceParentId = resourceParentId;
+        this.day = day;
+        this.segmentInMinutes = segmentInMinutes;
+        this.segments = segments;
+        this.blockades = blockades;
+        this.version = version;
+    }
+
+    //segments of a bitmap are counted from UTC midnight, while normalization counts them from the full hour;
+    //slots on which both disagree (e.g. daily segments from 10:00, or 90 minutes from 10:00) are rejected
+    static List<AvailabilityBitmap> of(ResourceId resourceId, ResourceId resourceParentId, TimeSlot timeslot, SegmentInMinutes segment) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(timeslot, segment);
+        if (!isOnGrid(normalized.from(), segment.value()) || !isOnGrid(normalized.to(), segment.value())) {
+            throw new IllegalArgumentException("Slot " + normalized + " is not aligned to " + segment.value() + " minute segments counted from UTC midnight");
+        }
+        List<AvailabilityBitmap> bitmaps = new ArrayList<>();
+        for (Instant day = dayOf(normalized.from()); day.isBefore(normalized.to()); day = day.plus(1, ChronoUnit.DAYS)) {
+            AvailabilityBitmap bitmap = empty(resourceId, resourceParentId, day, segment.value());
+            bitmap.segments.set(bitmap.startIndex(normalized), bitmap.endIndex(normalized));
+            bitmaps.add(bitmap);
+        }
+        return bitmaps;
+    }
+
+    static AvailabilityBitmap decode(ResourceId resourceId, ResourceId resourceParentId, Instant day, int segmentInMinutes,
+                                     byte[] segments, byte[] blockades, int version) {
+        Blockade[] decoded = freeBlockades(MINUTES_IN_DAY / segmentInMinutes);
+        ByteBuffer buffer = ByteBuffer.wrap(blockades);
+        while (buffer.remaining() >= RUN_SIZE_IN_BYTES) {
+            int start = buffer.getInt();
+            int length = buffer.getInt();
+            Owner owner = new Owner(new UUID(buffer.getLong(), buffer.getLong()));
+            boolean disabled = buffer.get() == 1;
+            Arrays.fill(decoded, start, start + length, new Blockade(owner, disabled));
+        }
+        return new AvailabilityBitmap(resourceId, resourceParentId, day, segmentInMinutes, BitSet.valueOf(segments), decoded, version);
+    }
+
+    private static boolean isOnGrid(Instant instant, int segmentInMinutes) {
+        return Duration.between(dayOf(instant), instant).toMinutes() % segmentInMinutes == 0;
+    }
+
+    static Instant dayOf(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    private static AvailabilityBitmap empty(ResourceId resourceId, ResourceId resourceParentId, Instant day, int segmentInMinutes) {
+        Blockade[] blockades = freeBlockades(MINUTES_IN_DAY / segmentInMinutes);
+        return new AvailabilityBitmap(resourceId, resourceParentId, day, segmentInMinutes, new BitSet(blockades.length), blockades, 0);
+    }
+
+    private static Blockade[] freeBlockades(int size) {
+        Blockade[] blockades = new Blockade[size];
+        Arrays.fill(blockades, Blockade.none());
+        return blockades;
+    }
+
+    boolean block(Owner requester, TimeSlot within) {
+        if (!isAvailableFor(requester, within)) {
+            return false;
+        }
+        fill(within, Blockade.ownedBy(requester));
+        return true;
+    }
+
+    boolean release(Owner requester, TimeSlot within) {
+        if (!isAvailableFor(requester, within)) {
+            return false;
+        }
+        fill(within, Blockade.none());
+        return true;
+    }
+
+    boolean disable(Owner requester, TimeSlot within) {
+        fill(within, Blockade.disabledBy(requester));
+        return true;
+    }
+
+    boolean hasNoSlots(TimeSlot within) {
+        int next = segments.nextSetBit(startIndex(within));
+        return next < 0 || next >= endIndex(within);
+    }
+
+    Set<Owner> owners(TimeSlot within) {
+        Set<Owner> owners = new HashSet<>();
+        int end = endIndex(within);
+        for (int i = segments.nextSetBit(startIndex(within)); i >= 0 && i < end; i = segments.nextSetBit(i + 1)) {
+            owners.add(blockades[i].takenBy());
+        }
+        return owners;
+    }
+
+    void addTo(Map<Owner, List<TimeSlot>> calendar, TimeSlot within) {
+        int end = endIndex(within);
+        int i = segments.nextSetBit(startIndex(within));
+        while (i >= 0 && i < end) {
+            Owner owner = blockades[i].takenBy();
+            int runEnd = i + 1;
+            while (runEnd < end && segments.get(runEnd) && blockades[runEnd].takenBy().equals(owner)) {
+                runEnd++;
+            }
+            append(calendar.computeIfAbsent(owner, o -> new ArrayList<>()), new TimeSlot(startOf(i), startOf(runEnd)));
+            i = segments.nextSetBit(runEnd);
+        }
+    }
+
+    //start of every existing segment overlapping the slot, with its blockade
+    void forEachSegment(TimeSlot within, BiConsumer<Instant, Blockade> action) {
+        int end = endIndex(within);
+        for (int i = segments.nextSetBit(startIndex(within)); i >= 0 && i < end; i = segments.nextSetBit(i + 1)) {
+            action.accept(startOf(i), blockades[i]);
+        }
+    }
+
+    private static void append(List<TimeSlot> slots, TimeSlot slot) {
+        if (!slots.isEmpty() && slots.get(slots.size() - 1).to().equals(slot.from())) {
+            TimeSlot previous = slots.remove(slots.size() - 1);
+            slots.add(new TimeSlot(previous.from(), slot.to()));
+        } else {
+            slots.add(slot);
+        }
+    }
+
+    private boolean isAvailableFor(Owner requester, TimeSlot within) {
+        int end = endIndex(within);
+        for (int i = segments.nextSetBit(startIndex(within)); i >= 0 && i < end; i = segments.nextSetBit(i + 1)) {
+            if (!blockades[i].canBeTakenBy(requester) || blockades[i].disabled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fill(TimeSlot within, Blockade blockade) {
+        int end = endIndex(within);
+        for (int i = segments.nextSetBit(startIndex(within)); i >= 0 && i < end; i = segments.nextSetBit(i + 1)) {
+            set(i, blockade);
+        }
+    }
+
+    private void set(int index, Blockade blockade) {
+        boolean wasFree = isFree(blockades[index]);
+        blockades[index] = blockade;
+        if (wasFree != isFree(blockade)) {
+            freeChanges.merge(segmentAt(index), wasFree ? -1 : 1, Integer::sum);
+        }
+    }
+
+    //segments disabled by the owner stay as they are
+    List<TimeSlot> releaseAllOf(Owner owner) {
+        List<TimeSlot> released = new ArrayList<>();
+        for (int i = segments.nextSetBit(0); i >= 0; i = segments.nextSetBit(i + 1)) {
+            if (blockades[i].takenBy().equals(owner) && !blockades[i].disabled()) {
+                set(i, Blockade.none());
+                append(released, segmentAt(i));
+            }
+        }
+        return released;
+    }
+
+    private static boolean isFree(Blockade blockade) {
+        return blockade.takenBy().byNone() && !blockade.disabled();
+    }
+
+    Map<TimeSlot, Integer> freeSegments() {
+        Map<TimeSlot, Integer> free = new HashMap<>();
+        for (int i = segments.nextSetBit(0); i >= 0; i = segments.nextSetBit(i + 1)) {
+            if (isFree(blockades[i])) {
+                free.put(segmentAt(i), 1);
+            }
+        }
+        return free;
+    }
+
+    Map<TimeSlot, Integer> freeChanges() {
+        return freeChanges;
+    }
+
+    private TimeSlot segmentAt(int index) {
+        return new TimeSlot(startOf(index), startOf(index + 1));
+    }
+
+    //slot widened to the boundaries of this day's segments
+    TimeSlot covering(TimeSlot within) {
+        return new TimeSlot(startOf(startIndex(within)), startOf(endIndex(within)));
+    }
+
+    private int startIndex(TimeSlot slot) {
+        long seconds = Duration.between(day, slot.from()).getSeconds();
+        return clip(Math.floorDiv(seconds, segmentInMinutes * 60L));
+    }
+
+    private int endIndex(TimeSlot slot) {
+        long seconds = Duration.between(day, slot.to()).getSeconds();
+        return clip(-Math.floorDiv(-seconds, segmentInMinutes * 60L));
+    }
+
+    private int clip(long index) {
+        return (int) Math.max(0, Math.min(blockades.length, index));
+    }
+
+    private Instant startOf(int index) {
+        return day.plus((long) index * segmentInMinutes, ChronoUnit.MINUTES);
+    }
+
+    byte[] encodedSegments() {
+        return segments.toByteArray();
+    }
+
+    byte[] encodedBlockades() {
+        List<int[]> runs = new ArrayList<>();
+        int i = 0;
+        while (i < blockades.length) {
+            if (blockades[i].takenBy().byNone()) {
+                i++;
+                continue;
+            }
+            int runEnd = i + 1;
+            while (runEnd < blockades.length && blockades[runEnd].equals(blockades[i])) {
+                runEnd++;
+            }
+            runs.add(new int[]{i, runEnd - i});
+            i = runEnd;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(runs.size() * RUN_SIZE_IN_BYTES);
+        for (int[] run : runs) {
+            Blockade blockade = blockades[run[0]];
+            buffer.putInt(run[0]);
+            buffer.putInt(run[1]);
+            buffer.putLong(blockade.takenBy().id().getMostSignificantBits());
+            buffer.putLong(blockade.takenBy().id().getLeastSignificantBits());
+            buffer.put((byte) (blockade.disabled() ? 1 : 0));
+        }
+        return buffer.array();
+    }
+
+    //owners of taken or disabled segments, stored next to the blockades for lookups by owner
+    UUID[] blockadeOwners() {
+        return Arrays.stream(blockades)
+                .map(Blockade::takenBy)
+                .filter(owner -> !owner.byNone())
+                .map(Owner::id)
+                .distinct()
+                .toArray(UUID[]::new);
+    }
+
+    ResourceId resourceId() {
+        return resourceId;
+    }
+
+    ResourceId resourceParentId() {
+        return resourceParentId;
+    }
+
+    Instant day() {
+        return day;
+    }
+
+    int segmentInMinutes() {
+        return segmentInMinutes;
+    }
+
+    int version() {
+        return version;
+    }
+}
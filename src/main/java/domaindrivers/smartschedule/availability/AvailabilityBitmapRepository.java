@@ -0,0 +1,155 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static java.sql.Timestamp.from;
+
+//bitmaps of children count into the rollups of their parent the same way segment rows do
+class AvailabilityBitmapRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AvailabilityParentRollups parentRollups;
+
+    AvailabilityBitmapRepository(JdbcTemplate client, AvailabilityParentRollups parentRollups) {
+        this.jdbcTemplate = client;
+        this.parentRollups = parentRollups;
+    }
+
+    void saveNew(List<AvailabilityBitmap> bitmaps) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO availability_bitmaps
+                        (resource_id, resource_parent_id, day, segment_in_minutes, segments, blockades, owners, version)
+                        VALUES
+                        (?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                bitmaps,
+                100,
+                (PreparedStatement ps, AvailabilityBitmap bitmap) -> {
+                    ps.setObject(1, bitmap.resourceId().getId());
+                    ps.setObject(2, bitmap.resourceParentId().getId());
+                    ps.setTimestamp(3, from(bitmap.day()));
+                    ps.setInt(4, bitmap.segmentInMinutes());
+                    ps.setBytes(5, bitmap.encodedSegments());
+                    ps.setBytes(6, bitmap.encodedBlockades());
+                    ps.setArray(7, ps.getConnection().createArrayOf("uuid", bitmap.blockadeOwners()));
+                    ps.setInt(8, 0);
+                });
+        parentRollups.add(freeChildren(bitmaps, AvailabilityBitmap::freeSegments));
+    }
+
+    List<AvailabilityBitmap> loadAllWithinSlot(ResourceId resourceId, TimeSlot within) {
+        return loadAllWithinSlot(Set.of(resourceId), within);
+    }
+
+    List<AvailabilityBitmap> loadAllWithinSlot(Set<ResourceId> resourceIds, TimeSlot within) {
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        return jdbcTemplate
+                .query("""
+                                select * from availability_bitmaps where resource_id = ANY(?::uuid[])
+                                and day >= ? and day < ?
+                                """, AvailabilityBitmapRowMapper.rowMapper,
+                        ids, from(AvailabilityBitmap.dayOf(within.from())), from(within.to()));
+    }
+
+    List<AvailabilityBitmap> loadAllWithinSlots(Map<ResourceId, TimeSlot> slots) {
+        Instant from = slots.values().stream().map(TimeSlot::from).min(Instant::compareTo).orElse(Instant.EPOCH);
+        Instant to = slots.values().stream().map(TimeSlot::to).max(Instant::compareTo).orElse(Instant.EPOCH);
+        return loadAllWithinSlot(slots.keySet(), new TimeSlot(from, to))
+                .stream()
+                .filter(bitmap -> !bitmap.day().isBefore(AvailabilityBitmap.dayOf(slots.get(bitmap.resourceId()).from())))
+                .filter(bitmap -> bitmap.day().isBefore(slots.get(bitmap.resourceId()).to()))
+                .toList();
+    }
+
+    //owners are kept next to the blockades, bitmaps of an owner are found by the gin index on them
+    List<AvailabilityBitmap> loadAllBlockedBy(Owner owner, TimeSlot within) {
+        return jdbcTemplate
+                .query("""
+                                select * from availability_bitmaps where owners @> array[?::uuid]
+                                and day >= ? and day < ?
+                                """, AvailabilityBitmapRowMapper.rowMapper,
+                        owner.id(), from(AvailabilityBitmap.dayOf(within.from())), from(within.to()));
+    }
+
+    List<AvailabilityBitmap> lockAllBlockedBy(Owner owner) {
+        return jdbcTemplate
+                .query("""
+                                select * from availability_bitmaps where owners @> array[?::uuid]
+                                order by resource_id, day
+                                for update
+                                """, AvailabilityBitmapRowMapper.rowMapper,
+                        owner.id());
+    }
+
+    boolean saveCheckingVersion(List<AvailabilityBitmap> bitmaps) {
+        return saveReturningStale(bitmaps).isEmpty();
+    }
+
+    List<AvailabilityBitmap> saveReturningStale(List<AvailabilityBitmap> bitmaps) {
+        int[][] results = jdbcTemplate.batchUpdate("""
+                        UPDATE availability_bitmaps
+                        SET blockades = ?, owners = ?, version = ?
+                        WHERE resource_id = ? AND day = ? AND version = ?
+                        """,
+                bitmaps,
+                100,
+                (PreparedStatement ps, AvailabilityBitmap bitmap) -> {
+                    ps.setBytes(1, bitmap.encodedBlockades());
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", bitmap.blockadeOwners()));
+                    ps.setInt(3, bitmap.version() + 1);
+                    ps.setObject(4, bitmap.resourceId().getId());
+                    ps.setTimestamp(5, from(bitmap.day()));
+                    ps.setInt(6, bitmap.version());
+                });
+        List<AvailabilityBitmap> stale = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : results) {
+            for (int updated : batch) {
+                if (updated != 1) {
+                    stale.add(bitmaps.get(index));
+                }
+                index++;
+            }
+        }
+        List<AvailabilityBitmap> saved = new ArrayList<>(bitmaps);
+        saved.removeAll(stale);
+        parentRollups.add(freeChildren(saved, AvailabilityBitmap::freeChanges));
+        return stale;
+    }
+
+    private static Map<AvailabilityParentRollups.ParentSegment, Integer> freeChildren(List<AvailabilityBitmap> bitmaps, Function<AvailabilityBitmap, Map<TimeSlot, Integer>> free) {
+        Map<AvailabilityParentRollups.ParentSegment, Integer> deltas = new HashMap<>();
+        bitmaps.stream()
+                .filter(bitmap -> bitmap.resourceParentId().getId() != null)
+                .forEach(bitmap -> free.apply(bitmap).forEach((segment, delta) ->
+                        deltas.merge(new AvailabilityParentRollups.ParentSegment(bitmap.resourceParentId(), segment), delta, Integer::sum)));
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+}
+
+class AvailabilityBitmapRowMapper {
+
+    static RowMapper<AvailabilityBitmap> rowMapper =
+            (rs, rowNum) -> AvailabilityBitmap.decode(
+                    ResourceId.of(rs.getString("resource_id")),
+                    ResourceId.of(rs.getString("resource_parent_id")),
+                    rs.getTimestamp("day").toInstant(),
+                    rs.getInt("segment_in_minutes"),
+                    rs.getBytes("segments"),
+                    rs.getBytes("blockades"),
+                    rs.getInt("version"));
+}
@@ -0,0 +1,43 @@
+package domaindrivers.smartschedule.availability;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static java.sql.Timestamp.from;
+
+//changes older than retention are folded into the last change of each segment before the horizon, which then acts as a snapshot;
+//as-of reads from after the horizon stay exact and only scan changes made since then
+class AvailabilityChangeLogCompaction {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final Duration retention;
+
+    AvailabilityChangeLogCompaction(JdbcTemplate jdbcTemplate, Clock clock, Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.retention = retention;
+    }
+
+    @Scheduled(cron = "@daily")
+    void maintain() {
+        compactBefore(Instant.now(clock).minus(retention));
+    }
+
+    int compactBefore(Instant horizon) {
+        return jdbcTemplate.update("""
+                        DELETE FROM availability_changes c
+                        WHERE c.changed_at < ?
+                        AND EXISTS (
+                            SELECT 1 FROM availability_changes newer
+                            WHERE newer.resource_id = c.resource_id AND newer.from_date = c.from_date AND newer.to_date = c.to_date
+                            AND newer.changed_at <= ?
+                            AND (newer.changed_at, newer.change_id) > (c.changed_at, c.change_id))
+                        """,
+                from(horizon), from(horizon));
+    }
+}
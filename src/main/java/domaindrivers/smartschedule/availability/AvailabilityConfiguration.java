@@ -2,17 +2,88 @@ package domaindrivers.smartschedule.availability;
 
 
 import domaindrivers.smartschedule.shared.EventsPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Clock;
+import java.time.Duration;
 
 @Configuration
 public class AvailabilityConfiguration {
 
+    @Value("${availability.index.enabled:false}")
+    private boolean indexEnabled;
+
+    @Value("${availability.index.max-resources:10000}")
+    private int indexMaxResources;
+
+    //0 disables the cache; calendars written by other instances stay stale for up to ttl when enabled
+    @Value("${availability.calendar-cache.max-size:0}")
+    private int calendarCacheMaxSize;
+
+    @Value("${availability.calendar-cache.ttl:PT30S}")
+    private Duration calendarCacheTtl;
+
+    @Value("${availability.read-model.fetch-size:500}")
+    private int readModelFetchSize;
+
+    @Value("${availability.lazy-slots.enabled:false}")
+    private boolean lazySlots;
+
+    @Value("${availability.concurrency.default-mode:OPTIMISTIC}")
+    private ConcurrencyMode defaultConcurrencyMode;
+
+    @Value("${availability.concurrency.stripes:64}")
+    private int lockStripes;
+
+    @Value("${availability.concurrency.stripe-timeout:PT5S}")
+    private Duration lockStripeTimeout;
+
+    //modes changed by other instances are picked up after this time at the latest
+    @Value("${availability.concurrency.mode-cache-ttl:PT30S}")
+    private Duration modeCacheTtl;
+
+    @Value("${availability.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${availability.retry.initial-backoff:PT0.01S}")
+    private Duration retryInitialBackoff;
+
+    @Value("${availability.retry.max-backoff:PT0.2S}")
+    private Duration retryMaxBackoff;
+
+    @Bean
+    AvailabilityFacade availabilityFacade(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EventsPublisher eventsPublisher, Clock clock) {
+        AvailabilityIndex availabilityIndex = indexEnabled ? AvailabilityIndex.enabled(indexMaxResources) : AvailabilityIndex.disabled();
+        CalendarCache calendarCache = new CalendarCache(calendarCacheMaxSize, calendarCacheTtl);
+        AvailabilityParentRollups parentRollups = new AvailabilityParentRollups(jdbcTemplate);
+        AvailabilitySegmentSizes segmentSizes = new AvailabilitySegmentSizes(jdbcTemplate);
+        ResourceAvailabilityRepository availabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate, parentRollups);
+        RowAvailabilityStore rows = new RowAvailabilityStore(availabilityRepository, new ResourceAvailabilityReadModel(jdbcTemplate, readModelFetchSize), new ResourceAvailabilityBulkLoader(jdbcTemplate, parentRollups), segmentSizes);
+        CompactAvailabilityStore compact = new CompactAvailabilityStore(new AvailabilityBitmapRepository(jdbcTemplate, parentRollups), segmentSizes);
+        LazyAvailabilityStore lazy = new LazyAvailabilityStore(new AvailabilityEnvelopeRepository(jdbcTemplate), availabilityRepository, segmentSizes);
+        ResourceAvailabilityStores stores = lazySlots ? ResourceAvailabilityStores.withLazyForNewSlots(rows, compact, lazy) : ResourceAvailabilityStores.withRowsForNewSlots(rows, compact, lazy);
+        return new AvailabilityFacade(stores, new AvailabilityUtilisationReadModel(jdbcTemplate), parentRollups, segmentSizes, new ResourceLocks(jdbcTemplate, defaultConcurrencyMode, lockStripes, lockStripeTimeout, modeCacheTtl), new ConflictRetryPolicy(new TransactionTemplate(transactionManager), jdbcTemplate, retryMaxAttempts, retryInitialBackoff, retryMaxBackoff), availabilityIndex, calendarCache, eventsPublisher, clock);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "availability.partitions.enabled", havingValue = "true")
+    AvailabilityPartitions availabilityPartitions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Clock clock,
+                                                  @Value("${availability.partitions.months-ahead:3}") int monthsAhead,
+                                                  @Value("${availability.partitions.retention-months:12}") int retentionInMonths) {
+        return new AvailabilityPartitions(jdbcTemplate, new TransactionTemplate(transactionManager), clock, monthsAhead, retentionInMonths);
+    }
+
     @Bean
-    AvailabilityFacade availabilityFacade(JdbcTemplate jdbcTemplate, EventsPublisher eventsPublisher, Clock clock) {
-        return new AvailabilityFacade(new ResourceAvailabilityRepository(jdbcTemplate), new ResourceAvailabilityReadModel(jdbcTemplate), eventsPublisher, clock);
+    //on unless disabled, the change log would grow without bounds otherwise
+    @ConditionalOnProperty(name = "availability.change-log.compaction.enabled", havingValue = "true", matchIfMissing = true)
+    AvailabilityChangeLogCompaction availabilityChangeLogCompaction(JdbcTemplate jdbcTemplate, Clock clock,
+                                                                    @Value("${availability.change-log.retention:P90D}") Duration retention) {
+        return new AvailabilityChangeLogCompaction(jdbcTemplate, clock, retention);
     }
 }
@@ -0,0 +1,45 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+//free, not yet materialized part of resource availability; segments are counted from the start of the envelope
+record AvailabilityEnvelope(ResourceId resourceId, ResourceId resourceParentId, TimeSlot slot, int segmentInMinutes) {
+
+    boolean overlaps(TimeSlot within) {
+        return slot.from().isBefore(within.to()) && slot.to().isAfter(within.from());
+    }
+
+    TimeSlot coveringSegments(TimeSlot within) {
+        long segmentInSeconds = segmentInMinutes * 60L;
+        long fromOffset = Math.max(0, within.from().getEpochSecond() - slot.from().getEpochSecond());
+        long toOffset = within.to().getEpochSecond() - slot.from().getEpochSecond();
+        Instant from = slot.from().plusSeconds(Math.floorDiv(fromOffset, segmentInSeconds) * segmentInSeconds);
+        Instant to = slot.from().plusSeconds(-Math.floorDiv(-toOffset, segmentInSeconds) * segmentInSeconds);
+        return new TimeSlot(from, to.isAfter(slot.to()) ? slot.to() : to);
+    }
+
+    ResourceGroupedAvailability materialize(TimeSlot part) {
+        List<ResourceAvailability> availabilities = new ArrayList<>();
+        for (Instant start = part.from(); start.isBefore(part.to()); start = start.plusSeconds(segmentInMinutes * 60L)) {
+            Instant end = start.plusSeconds(segmentInMinutes * 60L);
+            TimeSlot segment = new TimeSlot(start, end.isAfter(part.to()) ? part.to() : end);
+            availabilities.add(new ResourceAvailability(ResourceAvailabilityId.newOne(), resourceId, resourceParentId, segment));
+        }
+        return new ResourceGroupedAvailability(availabilities);
+    }
+
+    List<AvailabilityEnvelope> leftoversAfterMaterializing(TimeSlot part) {
+        List<AvailabilityEnvelope> leftovers = new ArrayList<>();
+        if (slot.from().isBefore(part.from())) {
+            leftovers.add(new AvailabilityEnvelope(resourceId, resourceParentId, new TimeSlot(slot.from(), part.from()), segmentInMinutes));
+        }
+        if (slot.to().isAfter(part.to())) {
+            leftovers.add(new AvailabilityEnvelope(resourceId, resourceParentId, new TimeSlot(part.to(), slot.to()), segmentInMinutes));
+        }
+        return leftovers;
+    }
+}
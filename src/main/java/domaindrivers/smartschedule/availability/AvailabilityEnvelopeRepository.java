@@ -0,0 +1,77 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.sql.Timestamp.from;
+
+class AvailabilityEnvelopeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AvailabilityEnvelopeRepository(JdbcTemplate client) {
+        this.jdbcTemplate = client;
+    }
+
+    void saveNew(List<AvailabilityEnvelope> envelopes) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO availability_envelopes
+                        (resource_id, resource_parent_id, from_date, to_date, segment_in_minutes)
+                        VALUES
+                        (?, ?, ?, ?, ?)
+                        """,
+                envelopes,
+                100,
+                (PreparedStatement ps, AvailabilityEnvelope envelope) -> {
+                    ps.setObject(1, envelope.resourceId().getId());
+                    ps.setObject(2, envelope.resourceParentId().getId());
+                    ps.setTimestamp(3, from(envelope.slot().from()));
+                    ps.setTimestamp(4, from(envelope.slot().to()));
+                    ps.setInt(5, envelope.segmentInMinutes());
+                });
+    }
+
+    List<AvailabilityEnvelope> loadOverlapping(Set<ResourceId> resourceIds, TimeSlot within) {
+        return jdbcTemplate.query("""
+                        select * from availability_envelopes where resource_id = ANY(?::uuid[])
+                        and from_date < ? and to_date > ?
+                        """, AvailabilityEnvelopeRowMapper.rowMapper,
+                ids(resourceIds), from(within.to()), from(within.from()));
+    }
+
+    //locked, so that concurrent writers materialize each envelope only once
+    List<AvailabilityEnvelope> lockOverlapping(Set<ResourceId> resourceIds, TimeSlot within) {
+        return jdbcTemplate.query("""
+                        select * from availability_envelopes where resource_id = ANY(?::uuid[])
+                        and from_date < ? and to_date > ?
+                        for update
+                        """, AvailabilityEnvelopeRowMapper.rowMapper,
+                ids(resourceIds), from(within.to()), from(within.from()));
+    }
+
+    void delete(AvailabilityEnvelope envelope) {
+        jdbcTemplate.update("DELETE FROM availability_envelopes WHERE resource_id = ? AND from_date = ?",
+                envelope.resourceId().getId(), from(envelope.slot().from()));
+    }
+
+    private static UUID[] ids(Set<ResourceId> resourceIds) {
+        return resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+    }
+}
+
+class AvailabilityEnvelopeRowMapper {
+
+    static RowMapper<AvailabilityEnvelope> rowMapper =
+            (rs, rowNum) -> new AvailabilityEnvelope(
+                    ResourceId.of(rs.getString("resource_id")),
+                    ResourceId.of(rs.getString("resource_parent_id")),
+                    new TimeSlot(rs.getTimestamp("from_date").toInstant(), rs.getTimestamp("to_date").toInstant()),
+                    rs.getInt("segment_in_minutes"));
+}
@@ -1,126 +1,408 @@
 package domaindrivers.smartschedule.availability;
 
 
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
 import domaindrivers.smartschedule.availability.segment.Segments;
 import domaindrivers.smartschedule.shared.EventsPublisher;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import jakarta.transaction.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Instant;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.defaultSegment;
+import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.minimalSegment;
 
-public class AvailabilityFacade {
+public class AvailabilityFacade implements CalendarLoader {
 
-    private final ResourceAvailabilityRepository availabilityRepository;
-    private final ResourceAvailabilityReadModel availabilityReadModel;
+    private final ResourceAvailabilityStores stores;
+    private final AvailabilityUtilisationReadModel utilisationReadModel;
+    private final AvailabilityParentRollups parentRollups;
+    private final AvailabilitySegmentSizes segmentSizes;
+    private final ResourceLocks resourceLocks;
+    private final ConflictRetryPolicy retryPolicy;
+    private final AvailabilityIndex availabilityIndex;
+    private final CalendarCache calendarCache;
     private final EventsPublisher eventsPublisher;
     private final Clock clock;
 
-    public AvailabilityFacade(ResourceAvailabilityRepository availabilityRepository, ResourceAvailabilityReadModel availabilityReadModel, EventsPublisher eventsPublisher, Clock clock) {
-        this.availabilityRepository = availabilityRepository;
-        this.availabilityReadModel = availabilityReadModel;
+    AvailabilityFacade(ResourceAvailabilityStores stores, AvailabilityUtilisationReadModel utilisationReadModel, AvailabilityParentRollups parentRollups, AvailabilitySegmentSizes segmentSizes, ResourceLocks resourceLocks, ConflictRetryPolicy retryPolicy, AvailabilityIndex availabilityIndex, CalendarCache calendarCache, EventsPublisher eventsPublisher, Clock clock) {
+        this.stores = stores;
+        this.utilisationReadModel = utilisationReadModel;
+        this.parentRollups = parentRollups;
+        this.segmentSizes = segmentSizes;
+        this.resourceLocks = resourceLocks;
+        this.retryPolicy = retryPolicy;
+        this.availabilityIndex = availabilityIndex;
+        this.calendarCache = calendarCache;
         this.eventsPublisher = eventsPublisher;
         this.clock = clock;
     }
 
     public void createResourceSlots(ResourceId resourceId, TimeSlot timeslot) {
-        ResourceGroupedAvailability groupedAvailability = ResourceGroupedAvailability.of(resourceId, timeslot);
-        availabilityRepository.saveNew(groupedAvailability);
+        createResourceSlots(resourceId, ResourceId.none(), timeslot, defaultSegment());
     }
 
     public void createResourceSlots(ResourceId resourceId, ResourceId parentId, TimeSlot timeslot) {
-        ResourceGroupedAvailability groupedAvailability = ResourceGroupedAvailability.of(resourceId, timeslot, parentId);
-        availabilityRepository.saveNew(groupedAvailability);
+        createResourceSlots(resourceId, parentId, timeslot, defaultSegment());
     }
 
-    @Transactional
+    public void createResourceSlots(ResourceId resourceId, TimeSlot timeslot, SegmentInMinutes segment) {
+        createResourceSlots(resourceId, ResourceId.none(), timeslot, segment);
+    }
+
+    //segment size is chosen once per resource, slots created later with another one are rejected
+    public void createResourceSlots(ResourceId resourceId, ResourceId parentId, TimeSlot timeslot, SegmentInMinutes segment) {
+        stores.forNewSlots().create(Map.of(resourceId, timeslot), parentId, segment);
+        created(resourceId, Segments.normalizeToSegmentBoundaries(timeslot, segment));
+    }
+
+    //large imports; segments are streamed to the database instead of being inserted in batches
+    public void importResourceSlots(Map<ResourceId, TimeSlot> slots) {
+        importResourceSlots(slots, defaultSegment());
+    }
+
+    public void importResourceSlots(Map<ResourceId, TimeSlot> slots, SegmentInMinutes segment) {
+        stores.forNewSlots().importAll(slots, segment);
+        slots.forEach((resourceId, slot) -> created(resourceId, Segments.normalizeToSegmentBoundaries(slot, segment)));
+    }
+
+    public SegmentInMinutes segmentOf(ResourceId resourceId) {
+        return segmentSizes.segmentOf(resourceId);
+    }
+
+    //mode used by block, release and disable of the resource when none is given explicitly; stored, so every instance uses the same one
+    public void useConcurrencyMode(ResourceId resourceId, ConcurrencyMode mode) {
+        resourceLocks.use(resourceId, mode);
+    }
+
+    //single row per resource; segments are materialized when a part of the slot is written for the first time
+    public void createLazyResourceSlots(ResourceId resourceId, ResourceId parentId, TimeSlot timeslot, SegmentInMinutes segment) {
+        stores.lazy().create(Map.of(resourceId, timeslot), parentId, segment);
+        created(resourceId, Segments.normalizeToSegmentBoundaries(timeslot, segment));
+    }
+
+    //long-horizon resources: one bitmap row per day instead of one row per segment
+    public void createCompactResourceSlots(ResourceId resourceId, TimeSlot timeslot) {
+        createCompactResourceSlots(resourceId, ResourceId.none(), timeslot);
+    }
+
+    public void createCompactResourceSlots(ResourceId resourceId, ResourceId parentId, TimeSlot timeslot) {
+        createCompactResourceSlots(resourceId, parentId, timeslot, defaultSegment());
+    }
+
+    public void createCompactResourceSlots(ResourceId resourceId, ResourceId parentId, TimeSlot timeslot, SegmentInMinutes segment) {
+        stores.compact().create(Map.of(resourceId, timeslot), parentId, segment);
+        created(resourceId, Segments.normalizeToSegmentBoundaries(timeslot, segment));
+    }
+
+    //not transactional on their own: every attempt runs in a transaction of its own, or in a savepoint of the caller's one
+    //blockades take whole segments of the resource, e.g. a quarter of an hour blocks the entire day of a resource with daily segments
     public boolean block(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
-        ResourceGroupedAvailability toBlock = findGrouped(resourceId, timeSlot);
-        return block(requester, toBlock);
+        return block(resourceId, timeSlot, requester, resourceLocks.modeOf(resourceId));
     }
 
-    private boolean block(Owner requester, ResourceGroupedAvailability toBlock) {
-        if (toBlock.hasNoSlots()) {
-            return false;
-        }
-        boolean result = toBlock.block(requester);
-        if (result) {
-            return availabilityRepository.saveCheckingVersion(toBlock);
-        }
-        return result;
+    public boolean block(ResourceId resourceId, TimeSlot timeSlot, Owner requester, ConcurrencyMode mode) {
+        return retryPolicy.execute(() -> resourceLocks.withLock(resourceId, mode, () -> tryBlock(resourceId, timeSlot, requester)));
+    }
+
+    private WriteOutcome tryBlock(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
+        return tryWrite(resourceId, timeSlot, requester, segments -> segments.block(requester));
     }
 
-    @Transactional
     public boolean release(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
-        ResourceGroupedAvailability toRelease = findGrouped(resourceId, timeSlot);
-        if (toRelease.hasNoSlots()) {
-            return false;
+        return release(resourceId, timeSlot, requester, resourceLocks.modeOf(resourceId));
+    }
+
+    public boolean release(ResourceId resourceId, TimeSlot timeSlot, Owner requester, ConcurrencyMode mode) {
+        return retryPolicy.execute(() -> resourceLocks.withLock(resourceId, mode, () -> tryRelease(resourceId, timeSlot, requester)));
+    }
+
+    private WriteOutcome tryRelease(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
+        return tryWrite(resourceId, timeSlot, Owner.none(), segments -> segments.release(requester));
+    }
+
+    //all or nothing: nothing is written when any of the resources can't be blocked
+    //concurrency modes of the resources and retries of version conflicts apply as for a single resource
+    public BulkBlockadeResult blockAll(Map<ResourceId, TimeSlot> toBlock, Owner requester) {
+        return changeAll(toBlock, requester, true);
+    }
+
+    public BulkBlockadeResult releaseAll(Map<ResourceId, TimeSlot> toRelease, Owner requester) {
+        return changeAll(toRelease, requester, false);
+    }
+
+    private BulkBlockadeResult changeAll(Map<ResourceId, TimeSlot> slots, Owner requester, boolean blocking) {
+        Map<ResourceId, TimeSlot> normalized = new HashMap<>();
+        slots.forEach((resourceId, slot) -> normalized.put(resourceId, Segments.normalizeToSegmentBoundaries(slot, minimalSegment())));
+        Map<ResourceId, ConcurrencyMode> modes = resourceLocks.modesOf(normalized.keySet());
+        Set<ResourceId> conflicts = new HashSet<>();
+        boolean applied = retryPolicy.execute(() -> resourceLocks.withLocks(modes, () -> tryChangeAll(normalized, requester, blocking, conflicts)));
+        return applied ? BulkBlockadeResult.succeeded() : BulkBlockadeResult.conflicted(conflicts);
+    }
+
+    //conflicts of the attempt are left in the given set; a stale attempt is rolled back by the retry policy
+    private WriteOutcome tryChangeAll(Map<ResourceId, TimeSlot> normalized, Owner requester, boolean blocking, Set<ResourceId> conflicts) {
+        conflicts.clear();
+        stores.prepareWrite(normalized);
+        Map<ResourceId, TimeSlot> notFound = new HashMap<>(normalized);
+        Map<ResourceId, TimeSlot> changed = new HashMap<>();
+        List<StoreWrite<?>> writes = new ArrayList<>();
+        for (ResourceAvailabilityStore<?> store : stores.all()) {
+            StoreWrite<?> write = StoreWrite.of(store, notFound);
+            write.segments().forEach((resourceId, segments) -> {
+                notFound.remove(resourceId);
+                if (!(blocking ? segments.block(requester) : segments.release(requester))) {
+                    conflicts.add(resourceId);
+                }
+                changed.put(resourceId, segments.extent());
+            });
+            writes.add(write);
+        }
+        conflicts.addAll(notFound.keySet());
+        if (!conflicts.isEmpty()) {
+            return WriteOutcome.REJECTED;
         }
-        boolean result = toRelease.release(requester);
-        if (result) {
-            return availabilityRepository.saveCheckingVersion(toRelease);
+        writes.forEach(write -> conflicts.addAll(write.saveReturningStale()));
+        if (!conflicts.isEmpty()) {
+            return WriteOutcome.STALE;
         }
-        return result;
+        changed.forEach((resourceId, slot) -> changed(resourceId, slot, blocking ? requester : Owner.none()));
+        return WriteOutcome.APPLIED;
     }
 
-    @Transactional
     public boolean disable(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
-        ResourceGroupedAvailability toDisable = findGrouped(resourceId, timeSlot);
-        if (toDisable.hasNoSlots()) {
-            return false;
+        return disable(resourceId, timeSlot, requester, resourceLocks.modeOf(resourceId));
+    }
+
+    public boolean disable(ResourceId resourceId, TimeSlot timeSlot, Owner requester, ConcurrencyMode mode) {
+        return retryPolicy.execute(() -> resourceLocks.withLock(resourceId, mode, () -> tryDisable(resourceId, timeSlot, requester)));
+    }
+
+    private WriteOutcome tryDisable(ResourceId resourceId, TimeSlot timeSlot, Owner requester) {
+        Set<Owner> previousOwners = new HashSet<>();
+        WriteOutcome outcome = tryWrite(resourceId, timeSlot, requester, segments -> {
+            previousOwners.addAll(segments.owners());
+            return segments.disable(requester);
+        });
+        if (outcome == WriteOutcome.APPLIED) {
+            eventsPublisher.publish(new ResourceTakenOver(resourceId, previousOwners, timeSlot, Instant.now(clock)));
         }
-        Set<Owner> previousOwners = toDisable.owners();
-        boolean result = toDisable.disable(requester);
-        if (result) {
-            result = availabilityRepository.saveCheckingVersion(toDisable);
-            if (result) {
-                eventsPublisher.publish(new ResourceTakenOver(resourceId, previousOwners, timeSlot, Instant.now(clock)));
+        return outcome;
+    }
+
+    //segments are changed in the first store holding any of them within the slot
+    private WriteOutcome tryWrite(ResourceId resourceId, TimeSlot timeSlot, Owner changedTo, Predicate<StoredSegments> change) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(timeSlot, minimalSegment());
+        stores.prepareWrite(Map.of(resourceId, normalized));
+        for (ResourceAvailabilityStore<?> store : stores.all()) {
+            Optional<WriteOutcome> outcome = tryWrite(store, resourceId, normalized, changedTo, change);
+            if (outcome.isPresent()) {
+                return outcome.get();
             }
         }
-        return result;
+        return WriteOutcome.REJECTED;
     }
 
-    @Transactional
-    public Optional<ResourceId> blockRandomAvailable(Set<ResourceId> resourceIds, TimeSlot within, Owner owner) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        ResourceGroupedAvailability groupedAvailability = availabilityRepository.loadAvailabilitiesOfRandomResourceWithin(resourceIds, normalized);
-        if (block(owner, groupedAvailability)) {
-            return groupedAvailability.resourceId();
-        } else {
+    private <S extends StoredSegments> Optional<WriteOutcome> tryWrite(ResourceAvailabilityStore<S> store, ResourceId resourceId, TimeSlot normalized, Owner changedTo, Predicate<StoredSegments> change) {
+        S segments = store.find(resourceId, normalized);
+        if (segments.hasNoSlots()) {
             return Optional.empty();
         }
+        if (!change.test(segments)) {
+            return Optional.of(WriteOutcome.REJECTED);
+        }
+        WriteOutcome outcome = WriteOutcome.saved(store.saveCheckingVersion(segments));
+        if (outcome == WriteOutcome.APPLIED) {
+            changed(resourceId, segments.extent(), changedTo);
+        }
+        return Optional.of(outcome);
+    }
+
+    //all candidates are read at once and the free ones are tried in random order; every try runs in a savepoint (or transaction) of its own,
+    //so a candidate lost to a concurrent blockade is skipped without keeping any of its rows locked
+    //tries take the locks of the candidate's concurrency mode, as single blockades do
+    public Optional<ResourceId> blockRandomAvailable(Set<ResourceId> resourceIds, TimeSlot within, Owner owner) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        Calendars calendars = loadStored(resourceIds, normalized);
+        List<ResourceId> candidates = new ArrayList<>(resourceIds
+                .stream()
+                .filter(resourceId -> calendars.get(resourceId).availableSlots().stream().anyMatch(normalized::within))
+                .toList());
+        Collections.shuffle(candidates);
+        Map<ResourceId, ConcurrencyMode> modes = resourceLocks.modesOf(new HashSet<>(candidates));
+        for (ResourceId candidate : candidates) {
+            if (retryPolicy.once(() -> resourceLocks.withLock(candidate, modes.get(candidate), () -> tryBlock(candidate, normalized, owner))) == WriteOutcome.APPLIED) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Calendars findBlockedBy(Owner owner, TimeSlot within) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.blockedBy(owner, normalized);
+    }
+
+    //single statement for segment rows regardless of the number of resources, compact ones are locked and saved in one batch; returns what was released
+    @Transactional
+    public Calendars releaseAllOf(Owner owner) {
+        Calendars released = stores.releaseAllOf(owner);
+        released.calendars().forEach((resourceId, calendar) ->
+                calendar.takenBy(owner).forEach(slot -> changed(resourceId, slot, Owner.none())));
+        return released;
     }
 
     public ResourceGroupedAvailability findGrouped(ResourceId resourceId, TimeSlot within) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        return new ResourceGroupedAvailability(availabilityRepository.loadAllWithinSlot(resourceId, normalized));
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.rows().find(resourceId, normalized);
     }
 
+    //calendars are limited to the requested slot (rounded to minimal segments), even if segments of the resource reach beyond it
+    @Override
     public Calendar loadCalendar(ResourceId resourceId, TimeSlot within) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        return availabilityReadModel.load(resourceId, normalized);
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return loadCalendars(Set.of(resourceId), normalized).get(resourceId);
+    }
+
+    //segment rows only; lazy and compact availabilities have no history
+    public Calendar loadCalendarAsOf(ResourceId resourceId, TimeSlot within, Instant asOf) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.rows().loadAsOf(resourceId, normalized, asOf).clippedTo(normalized);
     }
 
+    @Override
     public Calendars loadCalendars(Set<ResourceId> resources, TimeSlot within) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        return availabilityReadModel.loadAll(resources, normalized);
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        Map<ResourceId, Calendar> cached = calendarCache.find(resources, normalized);
+        if (cached.size() == resources.size()) {
+            return new Calendars(cached).clippedTo(normalized);
+        }
+        Set<ResourceId> notCached = new HashSet<>(resources);
+        notCached.removeAll(cached.keySet());
+        Calendars loaded = loadNotCached(notCached, normalized);
+        calendarCache.put(notCached, loaded, normalized);
+        return loaded.merge(new Calendars(cached)).clippedTo(normalized);
+    }
+
+    private Calendars loadNotCached(Set<ResourceId> resources, TimeSlot normalized) {
+        Map<ResourceId, Calendar> indexed = availabilityIndex.find(resources, normalized);
+        if (indexed.size() == resources.size()) {
+            return new Calendars(indexed);
+        }
+        Set<ResourceId> notIndexed = new HashSet<>(resources);
+        notIndexed.removeAll(indexed.keySet());
+        Map<ResourceId, Long> countersBeforeLoad = availabilityIndex.changeCounters(notIndexed);
+        Calendars loaded = loadStored(notIndexed, normalized);
+        //a rolled back transaction may have read its own uncommitted writes
+        afterCommit(() -> availabilityIndex.warm(notIndexed, loaded, normalized, countersBeforeLoad));
+        return loaded.merge(new Calendars(indexed));
+    }
+
+    private Calendars loadStored(Set<ResourceId> resources, TimeSlot normalized) {
+        return stores.load(resources, normalized);
+    }
+
+    //for sweeps over many resources; has to be closed, and consumed within a transaction to be fetched in batches
+    public Stream<Calendar> streamCalendars(Set<ResourceId> resources, TimeSlot within) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.stream(resources, normalized).map(calendar -> calendar.clippedTo(normalized));
+    }
+
+    public List<UtilisationBucket> utilisation(Set<ResourceId> resources, TimeSlot within, BucketSize bucketSize) {
+        return utilisationReadModel.histogram(resources, within, bucketSize);
+    }
+
+    public List<UtilisationBucket> utilisationOfParent(ResourceId parentId, TimeSlot within, BucketSize bucketSize) {
+        return utilisationReadModel.histogramOfParent(parentId, within, bucketSize);
+    }
+
+    public boolean isAnyChildFree(ResourceId parentId, TimeSlot within) {
+        return parentRollups.anyChildFree(parentId, within);
+    }
+
+    //number of free children per segment, segments without free children are skipped
+    public Map<TimeSlot, Integer> freeChildren(ResourceId parentId, TimeSlot within) {
+        return parentRollups.freeChildren(parentId, within);
+    }
+
+    public ConflictStats conflictStats() {
+        return retryPolicy.stats();
+    }
+
+    //all resources with availability within the slot, to be read with CalendarSnapshot.open
+    @Transactional
+    public void exportCalendars(TimeSlot within, Path file) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        try (Stream<Calendar> calendars = streamCalendars(stores.rows().resourcesWithin(normalized), normalized)) {
+            CalendarSnapshotWriter.write(file, normalized, calendars);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public CalendarCacheStats calendarCacheStats() {
+        return calendarCache.stats();
     }
 
     ResourceGroupedAvailability find(ResourceId resourceId, TimeSlot within) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        return new ResourceGroupedAvailability(availabilityRepository.loadAllWithinSlot(resourceId, normalized));
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.rows().find(resourceId, normalized);
     }
 
     ResourceGroupedAvailability findByParentId(ResourceId parentId, TimeSlot within) {
-        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, defaultSegment());
-        return new ResourceGroupedAvailability(availabilityRepository.loadAllByParentIdWithinSlot(parentId, normalized));
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        return stores.rows().findByParentId(parentId, normalized);
     }
 
+    private void created(ResourceId resourceId, TimeSlot normalized) {
+        calendarCache.invalidate(resourceId, normalized);
+        afterCommit(() -> {
+            calendarCache.invalidate(resourceId, normalized);
+            availabilityIndex.created(resourceId, normalized);
+        });
+    }
 
-}
+    //extent of the segments actually written, which may be wider than the requested slot
+    //cache is invalidated again after commit, as a concurrent load may have cached the state from before this change
+    private void changed(ResourceId resourceId, TimeSlot extent, Owner owner) {
+        calendarCache.invalidate(resourceId, extent);
+        afterCommit(() -> {
+            calendarCache.invalidate(resourceId, extent);
+            availabilityIndex.changed(resourceId, extent, owner);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    //segments found in one of the stores, saved back by the same store
+    private record StoreWrite<S extends StoredSegments>(ResourceAvailabilityStore<S> store, Map<ResourceId, S> segments) {
 
+        static <S extends StoredSegments> StoreWrite<S> of(ResourceAvailabilityStore<S> store, Map<ResourceId, TimeSlot> slots) {
+            return new StoreWrite<>(store, slots.isEmpty() ? Map.of() : store.findAll(slots));
+        }
 
+        Set<ResourceId> saveReturningStale() {
+            return segments.isEmpty() ? Set.of() : store.saveReturningStale(segments.values());
+        }
+    }
+}
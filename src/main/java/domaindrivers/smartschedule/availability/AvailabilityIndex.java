@@ -0,0 +1,234 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+//in-process view of merged runs per resource; answers calendars only within the window it was warmed with
+//changes made by other application instances are not visible here - enable only for a single writer
+//loads are installed only when no change of the resource was applied since the load started, and only after the loading transaction commits
+class AvailabilityIndex {
+
+    private static final int CHANGE_COUNTERS = 1024;
+
+    private final boolean enabled;
+    private final int maxResources;
+    private final Map<ResourceId, ResourceTimeline> timelines = new ConcurrentHashMap<>();
+    //insertion order of resources, the oldest are evicted first when over max size
+    private final Queue<ResourceId> order = new ConcurrentLinkedQueue<>();
+    //changes applied per stripe of resources, bumped under the lock of the resource's bin together with its timeline,
+    //so a load racing with a change sees the counter moved; resources sharing a stripe only skip some warm-ups
+    private final AtomicLongArray changes = new AtomicLongArray(CHANGE_COUNTERS);
+
+    private AvailabilityIndex(boolean enabled, int maxResources) {
+        this.enabled = enabled;
+        this.maxResources = maxResources;
+    }
+
+    static AvailabilityIndex enabled(int maxResources) {
+        return new AvailabilityIndex(true, maxResources);
+    }
+
+    static AvailabilityIndex disabled() {
+        return new AvailabilityIndex(false, 0);
+    }
+
+    Map<ResourceId, Calendar> find(Set<ResourceId> resourceIds, TimeSlot within) {
+        if (!enabled) {
+            return Map.of();
+        }
+        Map<ResourceId, Calendar> found = new HashMap<>();
+        for (ResourceId resourceId : resourceIds) {
+            ResourceTimeline timeline = timelines.get(resourceId);
+            if (timeline != null) {
+                timeline.calendar(within).ifPresent(calendar -> found.put(resourceId, calendar));
+            }
+        }
+        return found;
+    }
+
+    //to be taken before loading the calendars that are warmed with
+    Map<ResourceId, Long> changeCounters(Set<ResourceId> resourceIds) {
+        if (!enabled) {
+            return Map.of();
+        }
+        Map<ResourceId, Long> counters = new HashMap<>();
+        resourceIds.forEach(resourceId -> counters.put(resourceId, changes.get(stripeOf(resourceId))));
+        return counters;
+    }
+
+    //calendars loaded after a change of the resource may already be stale and are skipped;
+    //the warmed window is merged with the one already held when they overlap or touch, otherwise it replaces it
+    void warm(Set<ResourceId> resourceIds, Calendars loaded, TimeSlot within, Map<ResourceId, Long> countersBeforeLoad) {
+        if (!enabled) {
+            return;
+        }
+        for (ResourceId resourceId : resourceIds) {
+            Long before = countersBeforeLoad.get(resourceId);
+            boolean[] added = new boolean[1];
+            timelines.compute(resourceId, (id, held) -> {
+                if (before == null || changes.get(stripeOf(id)) != before) {
+                    return held;
+                }
+                ResourceTimeline warmed = new ResourceTimeline(id, loaded.get(id), within);
+                added[0] = held == null;
+                return held == null ? warmed : warmed.mergedWith(held);
+            });
+            if (added[0]) {
+                order.add(resourceId);
+            }
+        }
+        evictOverMaxSize();
+    }
+
+    void created(ResourceId resourceId, TimeSlot slot) {
+        apply(resourceId, timeline -> timeline.assign(slot, Owner.none(), true));
+    }
+
+    void changed(ResourceId resourceId, TimeSlot slot, Owner owner) {
+        apply(resourceId, timeline -> timeline.assign(slot, owner, false));
+    }
+
+    private void apply(ResourceId resourceId, Consumer<ResourceTimeline> change) {
+        if (!enabled) {
+            return;
+        }
+        timelines.compute(resourceId, (id, held) -> {
+            changes.incrementAndGet(stripeOf(id));
+            if (held != null) {
+                change.accept(held);
+            }
+            return held;
+        });
+    }
+
+    private void evictOverMaxSize() {
+        while (timelines.size() > maxResources) {
+            ResourceId eldest = order.poll();
+            if (eldest == null) {
+                return;
+            }
+            timelines.remove(eldest);
+        }
+    }
+
+    private static int stripeOf(ResourceId resourceId) {
+        return Math.floorMod(resourceId.hashCode(), CHANGE_COUNTERS);
+    }
+}
+
+class ResourceTimeline {
+
+    private final ResourceId resourceId;
+    private final TimeSlot coverage;
+    private final TreeMap<Instant, Run> runs = new TreeMap<>();
+
+    record Run(Instant from, Instant to, Owner owner) {
+    }
+
+    ResourceTimeline(ResourceId resourceId, Calendar calendar, TimeSlot coverage) {
+        this.resourceId = resourceId;
+        this.coverage = coverage;
+        calendar.calendar().forEach((owner, slots) ->
+                slots.forEach(slot -> runs.put(slot.from(), new Run(slot.from(), slot.to(), owner))));
+        coalesce();
+    }
+
+    //runs of the older timeline outside of this one's coverage are kept when both coverages overlap or touch
+    ResourceTimeline mergedWith(ResourceTimeline older) {
+        if (older.coverage.from().isAfter(coverage.to()) || older.coverage.to().isBefore(coverage.from())) {
+            return this;
+        }
+        Instant from = older.coverage.from().isBefore(coverage.from()) ? older.coverage.from() : coverage.from();
+        Instant to = older.coverage.to().isAfter(coverage.to()) ? older.coverage.to() : coverage.to();
+        ResourceTimeline merged = new ResourceTimeline(resourceId, new Calendar(resourceId, Map.of()), new TimeSlot(from, to));
+        synchronized (older) {
+            for (Run run : older.runs.values()) {
+                if (run.from().isBefore(coverage.from())) {
+                    Instant end = run.to().isBefore(coverage.from()) ? run.to() : coverage.from();
+                    merged.runs.put(run.from(), new Run(run.from(), end, run.owner()));
+                }
+                if (run.to().isAfter(coverage.to())) {
+                    Instant start = run.from().isAfter(coverage.to()) ? run.from() : coverage.to();
+                    merged.runs.put(start, new Run(start, run.to(), run.owner()));
+                }
+            }
+        }
+        merged.runs.putAll(runs);
+        merged.coalesce();
+        return merged;
+    }
+
+    synchronized Optional<Calendar> calendar(TimeSlot within) {
+        if (!within.within(coverage)) {
+            return Optional.empty();
+        }
+        Map<Owner, List<TimeSlot>> calendar = new HashMap<>();
+        for (Run run : overlapping(within)) {
+            Instant from = run.from().isAfter(within.from()) ? run.from() : within.from();
+            Instant to = run.to().isBefore(within.to()) ? run.to() : within.to();
+            calendar.computeIfAbsent(run.owner(), owner -> new ArrayList<>()).add(new TimeSlot(from, to));
+        }
+        return Optional.of(new Calendar(resourceId, calendar));
+    }
+
+    //existing runs are split at the slot boundaries; gaps are filled only for newly created slots
+    synchronized void assign(TimeSlot slot, Owner owner, boolean fillGaps) {
+        Instant from = slot.from().isAfter(coverage.from()) ? slot.from() : coverage.from();
+        Instant to = slot.to().isBefore(coverage.to()) ? slot.to() : coverage.to();
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (Run run : overlapping(new TimeSlot(from, to))) {
+            runs.remove(run.from());
+            if (run.from().isBefore(from)) {
+                runs.put(run.from(), new Run(run.from(), from, run.owner()));
+            }
+            if (run.to().isAfter(to)) {
+                runs.put(to, new Run(to, run.to(), run.owner()));
+            }
+            if (!fillGaps) {
+                Instant commonFrom = run.from().isAfter(from) ? run.from() : from;
+                Instant commonTo = run.to().isBefore(to) ? run.to() : to;
+                runs.put(commonFrom, new Run(commonFrom, commonTo, owner));
+            }
+        }
+        if (fillGaps) {
+            runs.put(from, new Run(from, to, owner));
+        }
+        coalesce();
+    }
+
+    private List<Run> overlapping(TimeSlot slot) {
+        Instant start = Optional.ofNullable(runs.floorKey(slot.from())).orElse(slot.from());
+        return runs.subMap(start, true, slot.to(), false)
+                .values()
+                .stream()
+                .filter(run -> run.to().isAfter(slot.from()))
+                .toList();
+    }
+
+    private void coalesce() {
+        List<Run> all = new ArrayList<>(runs.values());
+        runs.clear();
+        Run current = null;
+        for (Run run : all) {
+            if (current != null && current.to().equals(run.from()) && current.owner().equals(run.owner())) {
+                current = new Run(current.from(), run.to(), current.owner());
+            } else {
+                if (current != null) {
+                    runs.put(current.from(), current);
+                }
+                current = run;
+            }
+        }
+        if (current != null) {
+            runs.put(current.from(), current);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+
+import static java.sql.Timestamp.from;
+
+//free children per parent and segment, maintained with deltas by every write of child segments and bitmaps;
+//lazy envelopes are free by definition and are added when reading
+//the delta upsert locks the rollup rows of the written segments until commit: writers of different children of one parent
+//wait for each other whenever they change the same segments, in the order of the rows they lock, so they can't deadlock
+//writers of other segments, or of children without parent, don't wait; a parent with many children written concurrently
+//over the same hours is a hot spot, and its writes are as fast as one writer at a time
+class AvailabilityParentRollups {
+
+    static final String UPSERT_DELTA = """
+            ON CONFLICT (resource_parent_id, from_date, to_date)
+            DO UPDATE SET free_children = availability_parent_rollups.free_children + excluded.free_children
+            """;
+
+    record ParentSegment(ResourceId parentId, TimeSlot segment) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AvailabilityParentRollups(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    static void countCreated(Map<ParentSegment, Integer> created, ResourceAvailability ra) {
+        if (ra.resourceParentId().getId() != null) {
+            created.merge(new ParentSegment(ra.resourceParentId(), ra.segment()), 1, Integer::sum);
+        }
+    }
+
+    void childrenCreated(List<ResourceAvailability> availabilities) {
+        Map<ParentSegment, Integer> created = new HashMap<>();
+        availabilities.forEach(ra -> countCreated(created, ra));
+        add(created);
+    }
+
+    //sorted, so that concurrent writers lock rollup rows in the same order
+    void add(Map<ParentSegment, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<ParentSegment, Integer>> sorted = new ArrayList<>(deltas.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<ParentSegment, Integer> delta) -> delta.getKey().parentId().getId())
+                .thenComparing(delta -> delta.getKey().segment().from()));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO availability_parent_rollups (resource_parent_id, from_date, to_date, free_children) VALUES (?, ?, ?, ?) " + UPSERT_DELTA,
+                sorted,
+                100,
+                (PreparedStatement ps, Map.Entry<ParentSegment, Integer> delta) -> {
+                    ps.setObject(1, delta.getKey().parentId().getId());
+                    ps.setTimestamp(2, from(delta.getKey().segment().from()));
+                    ps.setTimestamp(3, from(delta.getKey().segment().to()));
+                    ps.setInt(4, delta.getValue());
+                });
+    }
+
+    boolean anyChildFree(ResourceId parentId, TimeSlot within) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                        SELECT EXISTS (
+                            SELECT 1 FROM availability_parent_rollups
+                            WHERE resource_parent_id = ? AND from_date < ? AND to_date > ? AND free_children > 0)
+                        OR EXISTS (
+                            SELECT 1 FROM availability_envelopes
+                            WHERE resource_parent_id = ? AND from_date < ? AND to_date > ?)
+                        """, Boolean.class,
+                parentId.getId(), from(within.to()), from(within.from()),
+                parentId.getId(), from(within.to()), from(within.from())));
+    }
+
+    Map<TimeSlot, Integer> freeChildren(ResourceId parentId, TimeSlot within) {
+        Map<TimeSlot, Integer> freeChildren = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                        SELECT from_date, to_date, SUM(free_children) AS free_children
+                        FROM (
+                            SELECT from_date, to_date, free_children
+                            FROM availability_parent_rollups
+                            WHERE resource_parent_id = ? AND from_date < ? AND to_date > ?
+                            UNION ALL
+                            SELECT g.segment_start, g.segment_start + make_interval(mins => segment_in_minutes), 1
+                            FROM availability_envelopes,
+                            LATERAL generate_series(from_date, to_date - make_interval(mins => segment_in_minutes), make_interval(mins => segment_in_minutes)) AS g(segment_start)
+                            WHERE resource_parent_id = ? AND from_date < ? AND to_date > ?
+                            AND g.segment_start < ? AND g.segment_start + make_interval(mins => segment_in_minutes) > ?
+                        ) s
+                        GROUP BY from_date, to_date
+                        HAVING SUM(free_children) > 0
+                        ORDER BY from_date, to_date
+                        """,
+                rs -> {
+                    freeChildren.put(new TimeSlot(rs.getTimestamp("from_date").toInstant(), rs.getTimestamp("to_date").toInstant()), rs.getInt("free_children"));
+                },
+                parentId.getId(), from(within.to()), from(within.from()),
+                parentId.getId(), from(within.to()), from(within.from()), from(within.to()), from(within.from()));
+        return freeChildren;
+    }
+}
@@ -0,0 +1,97 @@
+package domaindrivers.smartschedule.availability;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//monthly range partitions of availabilities by from_date; rows outside of created partitions land in the default one
+class AvailabilityPartitions {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("availabilities_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-01");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final int retentionInMonths;
+
+    AvailabilityPartitions(JdbcTemplate jdbcTemplate, TransactionTemplate transactions, Clock clock, int monthsAhead, int retentionInMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = transactions;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.retentionInMonths = retentionInMonths;
+    }
+
+    @Scheduled(cron = "@daily")
+    void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        createMonthlyPartitions(current, monthsAhead);
+        detachPartitionsBefore(current.minusMonths(retentionInMonths));
+    }
+
+    //partitions are created ahead of time; rows of the month which already landed in the default partition are moved into the new one,
+    //as a partition can't be attached while the default one holds rows within its bounds
+    void createMonthlyPartitions(YearMonth from, int months) {
+        for (int i = 0; i <= months; i++) {
+            YearMonth month = from.plusMonths(i);
+            transactions.execute(status -> {
+                createMonthlyPartition(month);
+                return null;
+            });
+        }
+    }
+
+    private void createMonthlyPartition(YearMonth month) {
+        String name = partitionName(month);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name))) {
+            return;
+        }
+        String lower = month.format(BOUND);
+        String upper = month.plusMonths(1).format(BOUND);
+        jdbcTemplate.execute("create table " + name + " (like availabilities including defaults including constraints)");
+        jdbcTemplate.execute("with moved as (delete from availabilities_default where from_date >= '" + lower + "' and from_date < '" + upper + "' returning *)" +
+                " insert into " + name + " select * from moved");
+        jdbcTemplate.execute("alter table availabilities attach partition " + name + " for values from ('" + lower + "') to ('" + upper + "')");
+    }
+
+    //detached tables are kept for archiving, they are no longer visible to availability queries
+    List<String> detachPartitionsBefore(YearMonth cutoff) {
+        List<String> expired = attachedPartitions()
+                .stream()
+                .filter(name -> monthOf(name).filter(month -> month.isBefore(cutoff)).isPresent())
+                .toList();
+        expired.forEach(name -> jdbcTemplate.execute("alter table availabilities detach partition " + name));
+        return expired;
+    }
+
+    List<String> attachedPartitions() {
+        return jdbcTemplate.queryForList("""
+                        select c.relname from pg_inherits i
+                        join pg_class c on c.oid = i.inhrelid
+                        join pg_class p on p.oid = i.inhparent
+                        where p.relname = 'availabilities'
+                        """, String.class);
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("availabilities_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static Optional<YearMonth> monthOf(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+    }
+}
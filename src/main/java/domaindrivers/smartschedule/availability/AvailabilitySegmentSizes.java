@@ -0,0 +1,60 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+
+import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.defaultSegment;
+
+//segment size is chosen once per resource: slots created later have to use the same one, so that segments of the resource never overlap
+class AvailabilitySegmentSizes {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AvailabilitySegmentSizes(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    void define(Set<ResourceId> resourceIds, SegmentInMinutes segment) {
+        if (resourceIds.isEmpty()) {
+            return;
+        }
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    INSERT INTO availability_segment_sizes (resource_id, segment_in_minutes)
+                    SELECT unnest(?), ?
+                    ON CONFLICT (resource_id) DO NOTHING
+                    """);
+            statement.setArray(1, connection.createArrayOf("uuid", ids));
+            statement.setInt(2, segment.value());
+            return statement;
+        });
+        Map<ResourceId, SegmentInMinutes> defined = segmentsOf(resourceIds);
+        List<ResourceId> conflicting = resourceIds.stream().filter(resourceId -> !segment.equals(defined.get(resourceId))).toList();
+        if (!conflicting.isEmpty()) {
+            throw new IllegalArgumentException("Resources " + conflicting + " already have segments other than " + segment.value() + " minutes");
+        }
+    }
+
+    //sizes of resources created before they were stored are backfilled by the schema script; resources without any slots use the default one
+    SegmentInMinutes segmentOf(ResourceId resourceId) {
+        return segmentsOf(Set.of(resourceId)).getOrDefault(resourceId, defaultSegment());
+    }
+
+    private Map<ResourceId, SegmentInMinutes> segmentsOf(Set<ResourceId> resourceIds) {
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        Map<ResourceId, SegmentInMinutes> segments = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT resource_id, segment_in_minutes FROM availability_segment_sizes WHERE resource_id = ANY (?)");
+                    statement.setArray(1, connection.createArrayOf("uuid", ids));
+                    return statement;
+                },
+                rs -> {
+                    segments.put(new ResourceId(rs.getObject("resource_id", UUID.class)), new SegmentInMinutes(rs.getInt("segment_in_minutes")));
+                });
+        return segments;
+    }
+}
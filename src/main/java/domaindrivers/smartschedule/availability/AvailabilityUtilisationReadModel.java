@@ -0,0 +1,84 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static java.sql.Timestamp.from;
+
+//segment counts aggregated in the database; segments of envelopes are generated on the fly and are always free
+//compact (bitmap) segments are decoded and counted here, their blockades are not readable in sql
+class AvailabilityUtilisationReadModel {
+
+    private static final String HISTOGRAM_QUERY = """
+            SELECT
+                date_trunc(?, s.from_date) AS bucket,
+                COUNT(*) FILTER (WHERE s.taken_by IS NULL AND NOT s.disabled) AS free,
+                COUNT(*) FILTER (WHERE s.taken_by IS NOT NULL AND NOT s.disabled) AS taken,
+                COUNT(*) FILTER (WHERE s.disabled) AS disabled
+            FROM (
+                SELECT from_date, taken_by, disabled
+                FROM availabilities
+                WHERE %1$s
+                AND from_date < ? AND to_date > ?
+                UNION ALL
+                SELECT g.segment_start, NULL::uuid, false
+                FROM availability_envelopes,
+                LATERAL generate_series(from_date, to_date - make_interval(mins => segment_in_minutes), make_interval(mins => segment_in_minutes)) AS g(segment_start)
+                WHERE %1$s
+                AND from_date < ? AND to_date > ?
+                AND g.segment_start < ? AND g.segment_start + make_interval(mins => segment_in_minutes) > ?
+            ) s
+            GROUP BY 1
+            ORDER BY 1
+            """;
+
+    private static final String BITMAPS_QUERY = """
+            SELECT * FROM availability_bitmaps
+            WHERE %s
+            AND day >= ? AND day < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    AvailabilityUtilisationReadModel(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    List<UtilisationBucket> histogram(Set<ResourceId> resourceIds, TimeSlot within, BucketSize bucketSize) {
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        return histogram("resource_id = ANY(?::uuid[])", ids, within, bucketSize);
+    }
+
+    List<UtilisationBucket> histogramOfParent(ResourceId parentId, TimeSlot within, BucketSize bucketSize) {
+        return histogram("resource_parent_id = ?", parentId.getId(), within, bucketSize);
+    }
+
+    private List<UtilisationBucket> histogram(String condition, Object resources, TimeSlot within, BucketSize bucketSize) {
+        Map<Instant, long[]> counts = new TreeMap<>();
+        jdbcTemplate.query(String.format(HISTOGRAM_QUERY, condition),
+                rs -> {
+                    counts.put(rs.getTimestamp("bucket").toInstant(), new long[]{rs.getLong("free"), rs.getLong("taken"), rs.getLong("disabled")});
+                },
+                bucketSize.field(),
+                resources, from(within.to()), from(within.from()),
+                resources, from(within.to()), from(within.from()), from(within.to()), from(within.from()));
+        jdbcTemplate.query(String.format(BITMAPS_QUERY, condition), AvailabilityBitmapRowMapper.rowMapper,
+                        resources, from(AvailabilityBitmap.dayOf(within.from())), from(within.to()))
+                .forEach(bitmap -> bitmap.forEachSegment(within, (segmentStart, blockade) -> {
+                    long[] bucket = counts.computeIfAbsent(bucketSize.bucketOf(segmentStart), start -> new long[3]);
+                    bucket[blockade.disabled() ? 2 : blockade.takenBy().byNone() ? 0 : 1]++;
+                }));
+        List<UtilisationBucket> histogram = new ArrayList<>();
+        counts.forEach((bucket, count) -> histogram.add(
+                new UtilisationBucket(new TimeSlot(bucket, bucket.plus(bucketSize.duration())), count[0], count[1], count[2])));
+        return histogram;
+    }
+}
@@ -0,0 +1,41 @@
+package domaindrivers.smartschedule.availability;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+public enum BucketSize {
+
+    HOUR("hour", Duration.ofHours(1)),
+    DAY("day", Duration.ofDays(1)),
+    //weeks start on monday, as date_trunc truncates them
+    WEEK("week", Duration.ofDays(7));
+
+    private final String field;
+    private final Duration duration;
+
+    BucketSize(String field, Duration duration) {
+        this.field = field;
+        this.duration = duration;
+    }
+
+    String field() {
+        return field;
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    //the same start as date_trunc gives for a UTC timestamp
+    Instant bucketOf(Instant instant) {
+        Instant day = instant.truncatedTo(ChronoUnit.DAYS);
+        return switch (this) {
+            case HOUR -> instant.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> day;
+            case WEEK -> day.minus(LocalDate.ofInstant(day, ZoneOffset.UTC).getDayOfWeek().getValue() - 1, ChronoUnit.DAYS);
+        };
+    }
+}
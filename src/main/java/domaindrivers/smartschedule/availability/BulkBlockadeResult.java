@@ -0,0 +1,18 @@
+package domaindrivers.smartschedule.availability;
+
+import java.util.Set;
+
+public record BulkBlockadeResult(Set<ResourceId> conflicts) {
+
+    static BulkBlockadeResult succeeded() {
+        return new BulkBlockadeResult(Set.of());
+    }
+
+    static BulkBlockadeResult conflicted(Set<ResourceId> conflicts) {
+        return new BulkBlockadeResult(Set.copyOf(conflicts));
+    }
+
+    public boolean successful() {
+        return conflicts.isEmpty();
+    }
+}
@@ -2,6 +2,7 @@ package domaindrivers.smartschedule.availability;
 
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,5 +26,16 @@ public record Calendar(ResourceId resourceId,
         return calendar.getOrDefault(requester, List.of());
     }
 
+    //segments overlapping the window may reach beyond it, only their part within the window is kept
+    Calendar clippedTo(TimeSlot window) {
+        Map<Owner, List<TimeSlot>> clipped = new HashMap<>();
+        calendar.forEach((owner, slots) -> slots
+                .stream()
+                .filter(slot -> slot.from().isBefore(window.to()) && slot.to().isAfter(window.from()))
+                .map(slot -> new TimeSlot(slot.from().isAfter(window.from()) ? slot.from() : window.from(), slot.to().isBefore(window.to()) ? slot.to() : window.to()))
+                .forEach(slot -> clipped.computeIfAbsent(owner, o -> new ArrayList<>()).add(slot)));
+        return new Calendar(resourceId, clipped);
+    }
+
 
 }
@@ -0,0 +1,141 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//calendars keyed by resource and normalized window; writes of this instance invalidate overlapping windows,
+//writes of other instances (or made around the facade) become visible after ttl at the latest, hence disabled by default
+//calendars are copied in and out, callers never share the cached maps
+class CalendarCache {
+
+    private final int maxSize;
+    private final long ttlInNanos;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    //insertion order, the oldest entries are evicted first when over max size; replaced or invalidated entries are skipped when polled
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    //windows of a resource are changed together with its entries, under the lock of the resource's bin
+    private final Map<ResourceId, Set<TimeSlot>> windows = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    record Key(ResourceId resourceId, TimeSlot window) {
+    }
+
+    record Entry(Key key, Calendar calendar, long loadedAt) {
+    }
+
+    //ttl is measured with System.nanoTime, domain clock may be fixed or mocked
+    CalendarCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlInNanos = ttl.toNanos();
+    }
+
+    static CalendarCache disabled() {
+        return new CalendarCache(0, Duration.ZERO);
+    }
+
+    Map<ResourceId, Calendar> find(Set<ResourceId> resourceIds, TimeSlot window) {
+        if (maxSize == 0) {
+            return Map.of();
+        }
+        long now = System.nanoTime();
+        Map<ResourceId, Calendar> found = new HashMap<>();
+        for (ResourceId resourceId : resourceIds) {
+            Key key = new Key(resourceId, window);
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.loadedAt() < ttlInNanos) {
+                found.put(resourceId, copyOf(entry.calendar()));
+                hits.increment();
+            } else {
+                if (entry != null && forget(entry)) {
+                    evictions.increment();
+                }
+                misses.increment();
+            }
+        }
+        return found;
+    }
+
+    void put(Set<ResourceId> resourceIds, Calendars loaded, TimeSlot window) {
+        if (maxSize == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (ResourceId resourceId : resourceIds) {
+            Key key = new Key(resourceId, window);
+            Entry entry = new Entry(key, copyOf(loaded.get(resourceId)), now);
+            windows.compute(resourceId, (id, cached) -> {
+                Set<TimeSlot> updated = cached == null ? new HashSet<>() : cached;
+                updated.add(window);
+                entries.put(key, entry);
+                return updated;
+            });
+            order.add(entry);
+            queued.incrementAndGet();
+        }
+        evictOverMaxSize();
+    }
+
+    void invalidate(ResourceId resourceId, TimeSlot changed) {
+        windows.computeIfPresent(resourceId, (id, cached) -> {
+            cached.removeIf(window -> {
+                boolean overlapping = window.from().isBefore(changed.to()) && window.to().isAfter(changed.from());
+                if (overlapping) {
+                    entries.remove(new Key(resourceId, window));
+                }
+                return overlapping;
+            });
+            return cached.isEmpty() ? null : cached;
+        });
+    }
+
+    CalendarCacheStats stats() {
+        return new CalendarCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    //the queue is trimmed as well, as it keeps the entries that were replaced or invalidated until they are polled
+    private void evictOverMaxSize() {
+        while (entries.size() > maxSize || queued.get() > 2 * maxSize) {
+            Entry eldest = order.poll();
+            if (eldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.get(eldest.key()) != eldest) {
+                continue;
+            }
+            if (entries.size() <= maxSize) {
+                order.add(eldest);
+                queued.incrementAndGet();
+            } else if (forget(eldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean forget(Entry entry) {
+        boolean[] removed = new boolean[1];
+        windows.computeIfPresent(entry.key().resourceId(), (id, cached) -> {
+            removed[0] = entries.remove(entry.key(), entry);
+            if (removed[0]) {
+                cached.remove(entry.key().window());
+            }
+            return cached.isEmpty() ? null : cached;
+        });
+        return removed[0];
+    }
+
+    private static Calendar copyOf(Calendar calendar) {
+        Map<Owner, List<TimeSlot>> copy = new HashMap<>();
+        calendar.calendar().forEach((owner, slots) -> copy.put(owner, new ArrayList<>(slots)));
+        return new Calendar(calendar.resourceId(), copy);
+    }
+}
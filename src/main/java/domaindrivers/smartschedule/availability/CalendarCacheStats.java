@@ -0,0 +1,4 @@
+package domaindrivers.smartschedule.availability;
+
+public record CalendarCacheStats(long hits, long misses, long evictions, int size) {
+}
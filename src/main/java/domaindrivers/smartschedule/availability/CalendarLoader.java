@@ -0,0 +1,13 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.Set;
+
+//read side of availability, served either by the database or by an exported snapshot
+public interface CalendarLoader {
+
+    Calendar loadCalendar(ResourceId resourceId, TimeSlot within);
+
+    Calendars loadCalendars(Set<ResourceId> resources, TimeSlot within);
+}
@@ -0,0 +1,123 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.Segments;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.minimalSegment;
+
+//read-only calendars exported with AvailabilityFacade.exportCalendars, memory mapped;
+//resources unknown to the snapshot, or asked about outside of the exported period, have empty calendars
+public final class CalendarSnapshot implements CalendarLoader {
+
+    static final int MAGIC = 0x43414C53;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int DIRECTORY_ENTRY_SIZE = 24;
+    static final Comparator<long[]> DIRECTORY_ORDER = Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]);
+
+    private final MappedByteBuffer buffer;
+    private final TimeSlot period;
+    private final long base;
+    private final int resourceCount;
+    private final long directoryOffset;
+    private final Owner[] owners;
+
+    private CalendarSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a calendar snapshot");
+        }
+        this.base = buffer.getLong(8);
+        this.period = new TimeSlot(instant(base), instant(buffer.getLong(16)));
+        this.resourceCount = buffer.getInt(24);
+        int ownerCount = buffer.getInt(28);
+        int ownersOffset = (int) buffer.getLong(32);
+        this.directoryOffset = buffer.getLong(40);
+        this.owners = new Owner[ownerCount];
+        owners[0] = Owner.none();
+        for (int i = 1; i < ownerCount; i++) {
+            owners[i] = Owner.of(new UUID(buffer.getLong(ownersOffset + i * 16), buffer.getLong(ownersOffset + i * 16 + 8)));
+        }
+    }
+
+    //single mapping, so snapshots are limited to 2GB
+    public static CalendarSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new CalendarSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public TimeSlot period() {
+        return period;
+    }
+
+    @Override
+    public Calendar loadCalendar(ResourceId resourceId, TimeSlot within) {
+        TimeSlot normalized = Segments.normalizeToSegmentBoundaries(within, minimalSegment());
+        int offset = offsetOf(resourceId);
+        if (offset < 0) {
+            return Calendar.empty(resourceId);
+        }
+        long from = epochMinute(normalized.from()) - base;
+        long to = epochMinute(normalized.to()) - base;
+        int slots = buffer.getInt(offset);
+        int starts = offset + 4;
+        int ends = starts + slots * 4;
+        int slotOwners = ends + slots * 4;
+        Map<Owner, List<TimeSlot>> calendar = new HashMap<>();
+        for (int i = 0; i < slots; i++) {
+            long start = Math.max(buffer.getInt(starts + i * 4), from);
+            long end = Math.min(buffer.getInt(ends + i * 4), to);
+            if (start < end) {
+                calendar.computeIfAbsent(owners[buffer.getInt(slotOwners + i * 4)], owner -> new ArrayList<>())
+                        .add(new TimeSlot(instant(base + start), instant(base + end)));
+            }
+        }
+        return new Calendar(resourceId, calendar);
+    }
+
+    @Override
+    public Calendars loadCalendars(Set<ResourceId> resources, TimeSlot within) {
+        Map<ResourceId, Calendar> calendars = new HashMap<>();
+        resources.forEach(resourceId -> calendars.put(resourceId, loadCalendar(resourceId, within)));
+        return new Calendars(calendars);
+    }
+
+    private int offsetOf(ResourceId resourceId) {
+        long[] searched = {resourceId.getId().getMostSignificantBits(), resourceId.getId().getLeastSignificantBits()};
+        int low = 0;
+        int high = resourceCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = (int) (directoryOffset + (long) middle * DIRECTORY_ENTRY_SIZE);
+            int comparison = DIRECTORY_ORDER.compare(new long[]{buffer.getLong(entry), buffer.getLong(entry + 8)}, searched);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return (int) buffer.getLong(entry + 16);
+            }
+        }
+        return -1;
+    }
+
+    static long epochMinute(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    private static Instant instant(long epochMinute) {
+        return Instant.ofEpochSecond(epochMinute * 60);
+    }
+}
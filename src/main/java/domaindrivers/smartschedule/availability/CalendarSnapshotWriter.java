@@ -0,0 +1,84 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static domaindrivers.smartschedule.availability.CalendarSnapshot.*;
+
+//calendars are written as they come, directory of resources and owners are appended at the end
+class CalendarSnapshotWriter {
+
+    static void write(Path file, TimeSlot period, Stream<Calendar> calendars) throws IOException {
+        long base = epochMinute(period.from());
+        Map<Owner, Integer> owners = new LinkedHashMap<>();
+        owners.put(Owner.none(), 0);
+        List<long[]> directory = new ArrayList<>();
+        long ownersOffset;
+        long directoryOffset;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.write(new byte[HEADER_SIZE]);
+            Iterator<Calendar> iterator = calendars.iterator();
+            while (iterator.hasNext()) {
+                Calendar calendar = iterator.next();
+                UUID resourceId = calendar.resourceId().getId();
+                directory.add(new long[]{resourceId.getMostSignificantBits(), resourceId.getLeastSignificantBits(), out.size()});
+                writeSlots(out, calendar, base, owners);
+            }
+            ownersOffset = out.size();
+            for (Owner owner : owners.keySet()) {
+                out.writeLong(owner.byNone() ? 0 : owner.id().getMostSignificantBits());
+                out.writeLong(owner.byNone() ? 0 : owner.id().getLeastSignificantBits());
+            }
+            directoryOffset = out.size();
+            directory.sort(DIRECTORY_ORDER);
+            for (long[] entry : directory) {
+                out.writeLong(entry[0]);
+                out.writeLong(entry[1]);
+                out.writeLong(entry[2]);
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(base)
+                .putLong(epochMinute(period.to()))
+                .putInt(directory.size())
+                .putInt(owners.size())
+                .putLong(ownersOffset)
+                .putLong(directoryOffset)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(header, 0);
+        }
+    }
+
+    //columnar within a resource: starts, ends and owners of all slots, minutes relative to the beginning of the period
+    private static void writeSlots(DataOutputStream out, Calendar calendar, long base, Map<Owner, Integer> owners) throws IOException {
+        List<Owner> slotOwners = new ArrayList<>();
+        List<TimeSlot> slots = new ArrayList<>();
+        calendar.calendar().forEach((owner, ownerSlots) -> ownerSlots.forEach(slot -> {
+            slotOwners.add(owner);
+            slots.add(slot);
+        }));
+        out.writeInt(slots.size());
+        for (TimeSlot slot : slots) {
+            out.writeInt(Math.toIntExact(epochMinute(slot.from()) - base));
+        }
+        for (TimeSlot slot : slots) {
+            out.writeInt(Math.toIntExact(epochMinute(slot.to()) - base));
+        }
+        for (Owner owner : slotOwners) {
+            out.writeInt(owners.computeIfAbsent(owner, o -> owners.size()));
+        }
+    }
+}
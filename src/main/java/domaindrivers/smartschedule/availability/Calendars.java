@@ -1,5 +1,8 @@
 package domaindrivers.smartschedule.availability;
 
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -12,9 +15,74 @@ public record Calendars(Map<ResourceId, Calendar> calendars) {
         return new Calendars(collect);
     }
 
+    //joined into continuous slots of the given owner, per resource
+    static Calendars ofSegments(Owner owner, List<ResourceAvailability> segments) {
+        Map<ResourceId, List<TimeSlot>> slots = new HashMap<>();
+        segments.forEach(ra -> slots.computeIfAbsent(ra.resourceId(), id -> new ArrayList<>()).add(ra.segment()));
+        return ofSlots(owner, slots);
+    }
+
+    static Calendars ofSlots(Owner owner, Map<ResourceId, List<TimeSlot>> slots) {
+        Map<ResourceId, Calendar> calendars = new HashMap<>();
+        slots.forEach((resourceId, resourceSlots) -> calendars.put(resourceId, new Calendar(resourceId, Map.of(owner, coalesce(resourceSlots)))));
+        return new Calendars(calendars);
+    }
+
     public Calendar get(ResourceId resourceId) {
         return calendars.getOrDefault(resourceId, Calendar.empty(resourceId));
     }
-}
 
+    //all windows of at least the given duration in which every one of the resources is available
+    public List<TimeSlot> commonAvailableSlots(Set<ResourceId> resources, Duration atLeast) {
+        return freeRunsOf(resources).atLeast(atLeast);
+    }
+
+    public Optional<TimeSlot> earliestCommonAvailableSlot(Set<ResourceId> resources, Duration duration) {
+        return freeRunsOf(resources).earliest(duration);
+    }
+
+    private FreeRuns freeRunsOf(Set<ResourceId> resources) {
+        return FreeRuns.common(resources.stream().map(resourceId -> FreeRuns.of(get(resourceId))).toList());
+    }
+
+    Calendars clippedTo(TimeSlot window) {
+        Map<ResourceId, Calendar> clipped = new HashMap<>();
+        calendars.forEach((resourceId, calendar) -> clipped.put(resourceId, calendar.clippedTo(window)));
+        return new Calendars(clipped);
+    }
+
+    Calendars merge(Calendars other) {
+        if (other.calendars.isEmpty()) {
+            return this;
+        }
+        Map<ResourceId, Calendar> merged = new HashMap<>(calendars);
+        other.calendars.forEach((resourceId, calendar) -> merged.merge(resourceId, calendar, Calendars::mergeCalendars));
+        return new Calendars(merged);
+    }
+
+    private static Calendar mergeCalendars(Calendar calendar, Calendar other) {
+        Map<Owner, List<TimeSlot>> merged = new HashMap<>();
+        calendar.calendar().forEach((owner, slots) -> merged.computeIfAbsent(owner, o -> new ArrayList<>()).addAll(slots));
+        other.calendar().forEach((owner, slots) -> merged.computeIfAbsent(owner, o -> new ArrayList<>()).addAll(slots));
+        merged.replaceAll((owner, slots) -> coalesce(slots));
+        return new Calendar(calendar.resourceId(), merged);
+    }
+
+    //parts of the same calendar may come from different storages, touching slots are joined back
+    static List<TimeSlot> coalesce(List<TimeSlot> slots) {
+        List<TimeSlot> sorted = new ArrayList<>(slots);
+        sorted.sort(Comparator.comparing(TimeSlot::from));
+        List<TimeSlot> coalesced = new ArrayList<>();
+        for (TimeSlot slot : sorted) {
+            int last = coalesced.size() - 1;
+            if (last >= 0 && !coalesced.get(last).to().isBefore(slot.from())) {
+                TimeSlot previous = coalesced.get(last);
+                coalesced.set(last, new TimeSlot(previous.from(), previous.to().isAfter(slot.to()) ? previous.to() : slot.to()));
+            } else {
+                coalesced.add(slot);
+            }
+        }
+        return coalesced;
+    }
+}
 
@@ -0,0 +1,94 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+//long-horizon resources: one bitmap row per resource and day instead of one row per segment
+class CompactAvailabilityStore implements ResourceAvailabilityStore<GroupedAvailabilityBitmaps> {
+
+    private final AvailabilityBitmapRepository bitmapRepository;
+    private final AvailabilitySegmentSizes segmentSizes;
+
+    CompactAvailabilityStore(AvailabilityBitmapRepository bitmapRepository, AvailabilitySegmentSizes segmentSizes) {
+        this.bitmapRepository = bitmapRepository;
+        this.segmentSizes = segmentSizes;
+    }
+
+    //slots not aligned to the bitmap grid are rejected before the segment size is defined
+    @Override
+    public void create(Map<ResourceId, TimeSlot> slots, ResourceId parentId, SegmentInMinutes segment) {
+        List<AvailabilityBitmap> bitmaps = slots.entrySet()
+                .stream()
+                .flatMap(slot -> AvailabilityBitmap.of(slot.getKey(), parentId, slot.getValue(), segment).stream())
+                .toList();
+        segmentSizes.define(slots.keySet(), segment);
+        bitmapRepository.saveNew(bitmaps);
+    }
+
+    @Override
+    public GroupedAvailabilityBitmaps find(ResourceId resourceId, TimeSlot within) {
+        return new GroupedAvailabilityBitmaps(bitmapRepository.loadAllWithinSlot(resourceId, within), within);
+    }
+
+    @Override
+    public Map<ResourceId, GroupedAvailabilityBitmaps> findAll(Map<ResourceId, TimeSlot> slots) {
+        Map<ResourceId, List<AvailabilityBitmap>> bitmaps = new HashMap<>();
+        bitmapRepository.loadAllWithinSlots(slots)
+                .forEach(bitmap -> bitmaps.computeIfAbsent(bitmap.resourceId(), id -> new ArrayList<>()).add(bitmap));
+        Map<ResourceId, GroupedAvailabilityBitmaps> found = new HashMap<>();
+        bitmaps.forEach((resourceId, resourceBitmaps) -> {
+            GroupedAvailabilityBitmaps grouped = new GroupedAvailabilityBitmaps(resourceBitmaps, slots.get(resourceId));
+            if (!grouped.hasNoSlots()) {
+                found.put(resourceId, grouped);
+            }
+        });
+        return found;
+    }
+
+    @Override
+    public boolean saveCheckingVersion(GroupedAvailabilityBitmaps segments) {
+        return bitmapRepository.saveCheckingVersion(segments.bitmaps());
+    }
+
+    @Override
+    public Set<ResourceId> saveReturningStale(Collection<GroupedAvailabilityBitmaps> segments) {
+        return bitmapRepository.saveReturningStale(segments.stream().flatMap(grouped -> grouped.bitmaps().stream()).toList())
+                .stream()
+                .map(AvailabilityBitmap::resourceId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Calendars load(Set<ResourceId> resourceIds, TimeSlot within) {
+        return GroupedAvailabilityBitmaps.calendars(bitmapRepository.loadAllWithinSlot(resourceIds, within), within);
+    }
+
+    //bitmaps of the owner are found by the index on their owners
+    @Override
+    public Calendars blockedBy(Owner owner, TimeSlot within) {
+        Calendars calendars = GroupedAvailabilityBitmaps.calendars(bitmapRepository.loadAllBlockedBy(owner, within), within);
+        Map<ResourceId, List<TimeSlot>> blocked = new HashMap<>();
+        calendars.calendars().forEach((resourceId, calendar) -> {
+            if (!calendar.takenBy(owner).isEmpty()) {
+                blocked.put(resourceId, calendar.takenBy(owner));
+            }
+        });
+        return Calendars.ofSlots(owner, blocked);
+    }
+
+    //bitmaps of the owner are locked and saved in one batch
+    @Override
+    public Calendars releaseAllOf(Owner owner) {
+        List<AvailabilityBitmap> bitmaps = bitmapRepository.lockAllBlockedBy(owner);
+        Map<ResourceId, List<TimeSlot>> released = new HashMap<>();
+        bitmaps.forEach(bitmap -> released.computeIfAbsent(bitmap.resourceId(), id -> new ArrayList<>()).addAll(bitmap.releaseAllOf(owner)));
+        if (!bitmapRepository.saveCheckingVersion(bitmaps)) {
+            throw new IllegalStateException("Locked bitmaps of " + owner + " were changed concurrently");
+        }
+        released.values().removeIf(List::isEmpty);
+        return Calendars.ofSlots(owner, released);
+    }
+}
@@ -0,0 +1,12 @@
+package domaindrivers.smartschedule.availability;
+
+public enum ConcurrencyMode {
+
+    //version of each segment is checked on save, a concurrent change makes the call return false
+    OPTIMISTIC,
+    //contenders wait for each other on a postgres advisory lock held until the end of the transaction
+    ADVISORY_LOCK,
+    //contenders wait for each other on a lock of this instance only; cheaper, but other instances are not excluded,
+    //a contender that doesn't get the lock within the stripe timeout fails with CannotAcquireLockException
+    STRIPED_LOCK
+}
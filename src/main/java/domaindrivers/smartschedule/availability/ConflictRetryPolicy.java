@@ -0,0 +1,105 @@
+package domaindrivers.smartschedule.availability;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//retries writes which lost on a version check; every attempt reads the state again
+//each attempt runs in a transaction of its own, or in a savepoint of the caller's transaction, and an attempt which didn't apply is rolled back:
+//neither the rows it managed to update nor their locks outlive it
+//backoff happens only between transactions of its own, within the caller's transaction attempts are repeated right away
+//as sleeping would hold whatever the caller has locked so far
+class ConflictRetryPolicy {
+
+    private final TransactionTemplate transactions;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffInNanos;
+    private final long maxBackoffInNanos;
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    ConflictRetryPolicy(TransactionTemplate transactions, JdbcTemplate jdbcTemplate, int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.transactions = transactions;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffInNanos = initialBackoff.toNanos();
+        this.maxBackoffInNanos = maxBackoff.toNanos();
+    }
+
+    static ConflictRetryPolicy noRetries(TransactionTemplate transactions, JdbcTemplate jdbcTemplate) {
+        return new ConflictRetryPolicy(transactions, jdbcTemplate, 1, Duration.ZERO, Duration.ZERO);
+    }
+
+    boolean execute(Supplier<WriteOutcome> attempt) {
+        boolean withinCallersTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            WriteOutcome outcome = once(attempt);
+            if (outcome != WriteOutcome.STALE) {
+                if (attemptNumber > 1 && outcome == WriteOutcome.APPLIED) {
+                    recovered.increment();
+                }
+                return outcome == WriteOutcome.APPLIED;
+            }
+            conflicts.increment();
+            if (attemptNumber >= maxAttempts || (!withinCallersTransaction && !backOff(attemptNumber))) {
+                exhausted.increment();
+                return false;
+            }
+            retries.increment();
+        }
+    }
+
+    //single attempt, for callers which move on to something else instead of trying again
+    WriteOutcome once(Supplier<WriteOutcome> attempt) {
+        return TransactionSynchronizationManager.isActualTransactionActive() ? withinSavepoint(attempt) : withinOwnTransaction(attempt);
+    }
+
+    ConflictStats stats() {
+        return new ConflictStats(conflicts.sum(), retries.sum(), recovered.sum(), exhausted.sum());
+    }
+
+    private WriteOutcome withinOwnTransaction(Supplier<WriteOutcome> attempt) {
+        return transactions.execute(status -> {
+            WriteOutcome outcome = attempt.get();
+            if (outcome != WriteOutcome.APPLIED) {
+                status.setRollbackOnly();
+            }
+            return outcome;
+        });
+    }
+
+    //savepoints of nested attempts may share the name, postgres rolls back to the most recent one
+    private WriteOutcome withinSavepoint(Supplier<WriteOutcome> attempt) {
+        jdbcTemplate.execute("SAVEPOINT write_attempt");
+        WriteOutcome outcome = attempt.get();
+        if (outcome != WriteOutcome.APPLIED) {
+            jdbcTemplate.execute("ROLLBACK TO SAVEPOINT write_attempt");
+        }
+        jdbcTemplate.execute("RELEASE SAVEPOINT write_attempt");
+        return outcome;
+    }
+
+    //full jitter: random pause up to the exponentially growing limit, so that contenders don't retry in lockstep
+    private boolean backOff(int attemptNumber) {
+        long limit = Math.min(maxBackoffInNanos, initialBackoffInNanos << Math.min(attemptNumber - 1, 30));
+        if (limit <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package domaindrivers.smartschedule.availability;
+
+public record ConflictStats(long conflicts, long retries, long recovered, long exhausted) {
+}
@@ -0,0 +1,123 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+//available time of a calendar as sorted, disjoint runs of epoch seconds laid out as [from, to, from, to, ...]
+final class FreeRuns {
+
+    private static final FreeRuns NONE = new FreeRuns(new long[0], 0);
+
+    private final long[] runs;
+    private final int length;
+
+    private FreeRuns(long[] runs, int length) {
+        this.runs = runs;
+        this.length = length;
+    }
+
+    static FreeRuns of(Calendar calendar) {
+        List<TimeSlot> slots = calendar.availableSlots();
+        if (slots.isEmpty()) {
+            return NONE;
+        }
+        long[] runs = new long[slots.size() * 2];
+        for (int i = 0; i < slots.size(); i++) {
+            runs[i * 2] = slots.get(i).from().getEpochSecond();
+            runs[i * 2 + 1] = slots.get(i).to().getEpochSecond();
+        }
+        if (!isSorted(runs)) {
+            sortRuns(runs);
+        }
+        int length = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            if (length > 0 && runs[i] <= runs[length - 1]) {
+                runs[length - 1] = Math.max(runs[length - 1], runs[i + 1]);
+            } else if (runs[i] < runs[i + 1]) {
+                runs[length++] = runs[i];
+                runs[length++] = runs[i + 1];
+            }
+        }
+        return new FreeRuns(runs, length);
+    }
+
+    //folded from the shortest, so that intermediate results stay small
+    static FreeRuns common(List<FreeRuns> all) {
+        if (all.isEmpty()) {
+            return NONE;
+        }
+        List<FreeRuns> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparingInt(runs -> runs.length));
+        FreeRuns common = sorted.get(0);
+        for (int i = 1; i < sorted.size() && common.length > 0; i++) {
+            common = common.intersect(sorted.get(i));
+        }
+        return common;
+    }
+
+    FreeRuns intersect(FreeRuns other) {
+        long[] result = new long[length + other.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < length && j < other.length) {
+            long from = Math.max(runs[i], other.runs[j]);
+            long to = Math.min(runs[i + 1], other.runs[j + 1]);
+            if (from < to) {
+                result[size++] = from;
+                result[size++] = to;
+            }
+            if (runs[i + 1] < other.runs[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return new FreeRuns(result, size);
+    }
+
+    Optional<TimeSlot> earliest(Duration duration) {
+        long seconds = duration.getSeconds();
+        for (int i = 0; i < length; i += 2) {
+            if (runs[i + 1] - runs[i] >= seconds) {
+                return Optional.of(new TimeSlot(Instant.ofEpochSecond(runs[i]), Instant.ofEpochSecond(runs[i] + seconds)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    List<TimeSlot> atLeast(Duration duration) {
+        long seconds = duration.getSeconds();
+        List<TimeSlot> windows = new ArrayList<>();
+        for (int i = 0; i < length; i += 2) {
+            if (runs[i + 1] - runs[i] >= seconds) {
+                windows.add(new TimeSlot(Instant.ofEpochSecond(runs[i]), Instant.ofEpochSecond(runs[i + 1])));
+            }
+        }
+        return windows;
+    }
+
+    private static boolean isSorted(long[] runs) {
+        for (int i = 2; i < runs.length; i += 2) {
+            if (runs[i] < runs[i - 2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void sortRuns(long[] runs) {
+        long[][] pairs = new long[runs.length / 2][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new long[]{runs[i * 2], runs[i * 2 + 1]};
+        }
+        Arrays.sort(pairs, Comparator.comparingLong(pair -> pair[0]));
+        for (int i = 0; i < pairs.length; i++) {
+            runs[i * 2] = pairs[i][0];
+            runs[i * 2 + 1] = pairs[i][1];
+        }
+    }
+}
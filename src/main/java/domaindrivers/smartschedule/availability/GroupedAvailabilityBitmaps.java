@@ -0,0 +1,84 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.*;
+
+import static java.util.Comparator.comparing;
+
+class GroupedAvailabilityBitmaps implements StoredSegments {
+
+    private final List<AvailabilityBitmap> bitmaps;
+    private final TimeSlot within;
+
+    GroupedAvailabilityBitmaps(List<AvailabilityBitmap> bitmaps, TimeSlot within) {
+        this.bitmaps = bitmaps;
+        this.within = within;
+    }
+
+    static Calendars calendars(List<AvailabilityBitmap> bitmaps, TimeSlot within) {
+        Map<ResourceId, Map<Owner, List<TimeSlot>>> calendars = new HashMap<>();
+        bitmaps.stream()
+                .sorted(comparing(AvailabilityBitmap::day))
+                .forEach(bitmap -> bitmap.addTo(calendars.computeIfAbsent(bitmap.resourceId(), id -> new HashMap<>()), within));
+        Map<ResourceId, Calendar> result = new HashMap<>();
+        calendars.forEach((resourceId, calendar) -> result.put(resourceId, new Calendar(resourceId, calendar)));
+        return new Calendars(result);
+    }
+
+    @Override
+    public boolean block(Owner requester) {
+        for (AvailabilityBitmap bitmap : bitmaps) {
+            if (!bitmap.block(requester, within)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean release(Owner requester) {
+        for (AvailabilityBitmap bitmap : bitmaps) {
+            if (!bitmap.release(requester, within)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean disable(Owner requester) {
+        for (AvailabilityBitmap bitmap : bitmaps) {
+            if (!bitmap.disable(requester, within)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasNoSlots() {
+        return bitmaps.stream().allMatch(bitmap -> bitmap.hasNoSlots(within));
+    }
+
+    @Override
+    public Set<Owner> owners() {
+        Set<Owner> owners = new HashSet<>();
+        bitmaps.forEach(bitmap -> owners.addAll(bitmap.owners(within)));
+        return owners;
+    }
+
+    @Override
+    public TimeSlot extent() {
+        return bitmaps.stream()
+                .map(bitmap -> bitmap.covering(within))
+                .reduce((first, second) -> new TimeSlot(
+                        first.from().isBefore(second.from()) ? first.from() : second.from(),
+                        first.to().isAfter(second.to()) ? first.to() : second.to()))
+                .orElse(within);
+    }
+
+    List<AvailabilityBitmap> bitmaps() {
+        return bitmaps;
+    }
+}
@@ -0,0 +1,93 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.availability.segment.Segments;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Instant;
+import java.util.*;
+
+//single envelope row per created slot, always free; parts about to be written are materialized into segment rows,
+//so the envelopes themselves never hold segments to be written
+class LazyAvailabilityStore implements ResourceAvailabilityStore<ResourceGroupedAvailability> {
+
+    private final AvailabilityEnvelopeRepository envelopeRepository;
+    private final ResourceAvailabilityRepository availabilityRepository;
+    private final AvailabilitySegmentSizes segmentSizes;
+
+    LazyAvailabilityStore(AvailabilityEnvelopeRepository envelopeRepository, ResourceAvailabilityRepository availabilityRepository, AvailabilitySegmentSizes segmentSizes) {
+        this.envelopeRepository = envelopeRepository;
+        this.availabilityRepository = availabilityRepository;
+        this.segmentSizes = segmentSizes;
+    }
+
+    @Override
+    public void create(Map<ResourceId, TimeSlot> slots, ResourceId parentId, SegmentInMinutes segment) {
+        segmentSizes.define(slots.keySet(), segment);
+        envelopeRepository.saveNew(slots.entrySet()
+                .stream()
+                .map(slot -> new AvailabilityEnvelope(slot.getKey(), parentId, Segments.normalizeToSegmentBoundaries(slot.getValue(), segment), segment.value()))
+                .toList());
+    }
+
+    //envelopes overlapping written slots are split: the covered segments become rows, the rest stays lazy
+    @Override
+    public void prepareWrite(Map<ResourceId, TimeSlot> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        TimeSlot window = new TimeSlot(
+                slots.values().stream().map(TimeSlot::from).min(Instant::compareTo).orElseThrow(),
+                slots.values().stream().map(TimeSlot::to).max(Instant::compareTo).orElseThrow());
+        for (AvailabilityEnvelope envelope : envelopeRepository.lockOverlapping(slots.keySet(), window)) {
+            TimeSlot slot = slots.get(envelope.resourceId());
+            if (!envelope.overlaps(slot)) {
+                continue;
+            }
+            TimeSlot part = envelope.coveringSegments(slot);
+            availabilityRepository.saveNew(envelope.materialize(part));
+            envelopeRepository.delete(envelope);
+            envelopeRepository.saveNew(envelope.leftoversAfterMaterializing(part));
+        }
+    }
+
+    @Override
+    public ResourceGroupedAvailability find(ResourceId resourceId, TimeSlot within) {
+        return new ResourceGroupedAvailability(List.of());
+    }
+
+    @Override
+    public Map<ResourceId, ResourceGroupedAvailability> findAll(Map<ResourceId, TimeSlot> slots) {
+        return Map.of();
+    }
+
+    @Override
+    public boolean saveCheckingVersion(ResourceGroupedAvailability segments) {
+        return true;
+    }
+
+    @Override
+    public Set<ResourceId> saveReturningStale(Collection<ResourceGroupedAvailability> segments) {
+        return Set.of();
+    }
+
+    @Override
+    public Calendars load(Set<ResourceId> resourceIds, TimeSlot within) {
+        Map<ResourceId, List<TimeSlot>> available = new HashMap<>();
+        envelopeRepository.loadOverlapping(resourceIds, within)
+                .forEach(envelope -> available.computeIfAbsent(envelope.resourceId(), id -> new ArrayList<>()).add(envelope.coveringSegments(within)));
+        Map<ResourceId, Calendar> calendars = new HashMap<>();
+        available.forEach((resourceId, slots) -> calendars.put(resourceId, new Calendar(resourceId, Map.of(Owner.none(), slots))));
+        return new Calendars(calendars);
+    }
+
+    @Override
+    public Calendars blockedBy(Owner owner, TimeSlot within) {
+        return new Calendars(Map.of());
+    }
+
+    @Override
+    public Calendars releaseAllOf(Owner owner) {
+        return new Calendars(Map.of());
+    }
+}
@@ -0,0 +1,92 @@
+package domaindrivers.smartschedule.availability;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+//new segments streamed with COPY in binary format, for imports too large for batched inserts
+class ResourceAvailabilityBulkLoader {
+
+    private static final String COPY = "COPY availabilities (id, resource_id, resource_parent_id, from_date, to_date, disabled, version) FROM STDIN (FORMAT binary)";
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final long POSTGRES_EPOCH_IN_SECONDS = 946684800L;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AvailabilityParentRollups parentRollups;
+
+    ResourceAvailabilityBulkLoader(JdbcTemplate jdbcTemplate, AvailabilityParentRollups parentRollups) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.parentRollups = parentRollups;
+    }
+
+    long saveNew(Stream<ResourceAvailability> availabilities) {
+        Map<AvailabilityParentRollups.ParentSegment, Integer> created = new HashMap<>();
+        long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY, BUFFER_SIZE)) {
+                DataOutputStream out = new DataOutputStream(copy);
+                out.write(SIGNATURE);
+                out.writeInt(0);
+                out.writeInt(0);
+                Iterator<ResourceAvailability> iterator = availabilities.iterator();
+                while (iterator.hasNext()) {
+                    ResourceAvailability availability = iterator.next();
+                    write(out, availability);
+                    AvailabilityParentRollups.countCreated(created, availability);
+                }
+                out.writeShort(-1);
+                out.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        parentRollups.add(created);
+        return copied;
+    }
+
+    private static void write(DataOutputStream out, ResourceAvailability ra) throws IOException {
+        out.writeShort(7);
+        writeUuid(out, ra.id().id());
+        writeUuid(out, ra.resourceId().getId());
+        writeUuid(out, ra.resourceParentId().getId());
+        writeTimestamp(out, ra.segment().from());
+        writeTimestamp(out, ra.segment().to());
+        out.writeInt(1);
+        out.writeBoolean(false);
+        out.writeInt(8);
+        out.writeLong(0);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        if (uuid == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    //microseconds since 2000-01-01 of the local date time, the same value setTimestamp writes to a timestamp column
+    private static void writeTimestamp(DataOutputStream out, Instant instant) throws IOException {
+        LocalDateTime local = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        long seconds = local.toEpochSecond(ZoneOffset.UTC) - POSTGRES_EPOCH_IN_SECONDS;
+        out.writeInt(8);
+        out.writeLong(seconds * 1_000_000L + local.getNano() / 1_000);
+    }
+}
@@ -2,11 +2,16 @@ package domaindrivers.smartschedule.availability;
 
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
-import java.sql.Timestamp;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.sql.Timestamp.from;
 
@@ -23,8 +28,8 @@ class ResourceAvailabilityReadModel {
                 FROM  
                     availabilities
                 WHERE
-                    from_date >= ? 
-                    AND to_date <= ?
+                    from_date < ?
+                    AND to_date > ?
                     AND resource_id = ANY (?)
                 
             ),
@@ -56,13 +61,20 @@ class ResourceAvailabilityReadModel {
             GROUP BY
                 resource_id, taken_by, grp
             ORDER BY
-                start_date;
+                resource_id, start_date
              """;
 
     private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
 
     ResourceAvailabilityReadModel(JdbcTemplate client) {
+        this(client, 0);
+    }
+
+    //fetch size takes effect only within a transaction, otherwise the driver reads the whole result at once
+    ResourceAvailabilityReadModel(JdbcTemplate client, int fetchSize) {
         this.jdbcTemplate = client;
+        this.fetchSize = fetchSize;
     }
 
     Calendar load(ResourceId resourceId, TimeSlot timeSlot) {
@@ -71,33 +83,111 @@ class ResourceAvailabilityReadModel {
     }
 
     Calendars loadAll(Set<ResourceId> resourceIds, TimeSlot timeSlot) {
-        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(  UUID[]::new);
-        List<Map<String, Object>> results =
-                jdbcTemplate.queryForList(
-                        calendar_query,
-                        from(timeSlot.from()),
-                        from(timeSlot.to()),
-                        ids);
         Map<ResourceId, Map<Owner, List<TimeSlot>>> calendars = new HashMap<>();
-        for (Map<String, Object> row : results) {
-            UUID resource = (UUID) row.get("resource_id");
-            ResourceId key = new ResourceId(resource);
-            UUID takenByUuid = (UUID) row.get("taken_by");
-            Owner takenBy = (takenByUuid == null) ? Owner.none() : new Owner(takenByUuid);
-            Instant fromDate = ((Timestamp) row.get("start_date")).toInstant();
-            Instant toDate = ((Timestamp) row.get("end_date")).toInstant();
-            TimeSlot loadedSlot = new TimeSlot(fromDate, toDate);
-            calendars.computeIfAbsent(key, res -> new HashMap<>());
-            calendars.get(key).computeIfAbsent(takenBy, owner -> new ArrayList<>()).add(loadedSlot);
-        }
-        return new Calendars(calendars
-                .entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> new Calendar(e.getKey(), e.getValue()))));
+        jdbcTemplate.query(calendarQuery(resourceIds, timeSlot), (RowCallbackHandler) rs -> {
+            ResourceId resourceId = new ResourceId(rs.getObject("resource_id", UUID.class));
+            calendars.computeIfAbsent(resourceId, id -> new HashMap<>())
+                    .computeIfAbsent(owner(rs), owner -> new ArrayList<>())
+                    .add(slot(rs));
+        });
+        Map<ResourceId, Calendar> result = new HashMap<>();
+        calendars.forEach((resourceId, calendar) -> result.put(resourceId, new Calendar(resourceId, calendar)));
+        return new Calendars(result);
     }
 
+    //one calendar at a time, in resource id order; has to be closed, as it keeps the result set open
+    Stream<Calendar> streamAll(Set<ResourceId> resourceIds, TimeSlot timeSlot) {
+        Stream<Run> runs = jdbcTemplate.queryForStream(calendarQuery(resourceIds, timeSlot),
+                (rs, rowNum) -> new Run(new ResourceId(rs.getObject("resource_id", UUID.class)), owner(rs), slot(rs)));
+        Iterator<Run> iterator = runs.iterator();
+        Iterator<Calendar> calendars = new Iterator<>() {
+            Run next = iterator.hasNext() ? iterator.next() : null;
 
-}
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Calendar next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                ResourceId resourceId = next.resourceId();
+                Map<Owner, List<TimeSlot>> calendar = new HashMap<>();
+                while (next != null && next.resourceId().equals(resourceId)) {
+                    calendar.computeIfAbsent(next.owner(), owner -> new ArrayList<>()).add(next.slot());
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+                return new Calendar(resourceId, calendar);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(calendars, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(runs::close);
+    }
 
+    //resources with any kind of stored availability within the slot
+    Set<ResourceId> resourcesWithin(TimeSlot timeSlot) {
+        Set<ResourceId> resources = new HashSet<>();
+        jdbcTemplate.query("""
+                        SELECT resource_id FROM availabilities WHERE from_date < ? AND to_date > ?
+                        UNION
+                        SELECT resource_id FROM availability_bitmaps WHERE day < ? AND day + interval '1 day' > ?
+                        UNION
+                        SELECT resource_id FROM availability_envelopes WHERE from_date < ? AND to_date > ?
+                        """,
+                (RowCallbackHandler) rs -> resources.add(ResourceId.of(rs.getString("resource_id"))),
+                from(timeSlot.to()), from(timeSlot.from()),
+                from(timeSlot.to()), from(timeSlot.from()),
+                from(timeSlot.to()), from(timeSlot.from()));
+        return resources;
+    }
 
+    //state of each segment is the last logged change at the moment, or free if it had not changed until then
+    //changes are stamped when written, not when committed: a moment within a longer transaction shows its changes,
+    //though no other reader could see them yet, and a change rolled back later is never logged
+    Calendar loadAsOf(ResourceId resourceId, TimeSlot timeSlot, Instant asOf) {
+        Map<Owner, List<TimeSlot>> calendar = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT a.from_date AS start_date, a.to_date AS end_date, c.taken_by
+                        FROM availabilities a
+                        LEFT JOIN LATERAL (
+                            SELECT taken_by FROM availability_changes
+                            WHERE resource_id = a.resource_id AND from_date = a.from_date AND to_date = a.to_date
+                            AND changed_at <= ?
+                            ORDER BY changed_at DESC, change_id DESC
+                            LIMIT 1
+                        ) c ON true
+                        WHERE a.resource_id = ? AND a.from_date < ? AND a.to_date > ? AND a.created_at <= ?
+                        ORDER BY a.from_date
+                        """,
+                (RowCallbackHandler) rs -> calendar.computeIfAbsent(owner(rs), owner -> new ArrayList<>()).add(slot(rs)),
+                from(asOf), resourceId.getId(), from(timeSlot.to()), from(timeSlot.from()), from(asOf));
+        calendar.replaceAll((owner, slots) -> Calendars.coalesce(slots));
+        return new Calendar(resourceId, calendar);
+    }
 
+    private record Run(ResourceId resourceId, Owner owner, TimeSlot slot) {
+    }
+
+    private PreparedStatementCreator calendarQuery(Set<ResourceId> resourceIds, TimeSlot timeSlot) {
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(calendar_query);
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, from(timeSlot.to()));
+            statement.setTimestamp(2, from(timeSlot.from()));
+            statement.setArray(3, connection.createArrayOf("uuid", ids));
+            return statement;
+        };
+    }
+
+    private static Owner owner(ResultSet rs) throws SQLException {
+        UUID takenBy = rs.getObject("taken_by", UUID.class);
+        return takenBy == null ? Owner.none() : new Owner(takenBy);
+    }
+
+    private static TimeSlot slot(ResultSet rs) throws SQLException {
+        return new TimeSlot(rs.getTimestamp("start_date").toInstant(), rs.getTimestamp("end_date").toInstant());
+    }
+}
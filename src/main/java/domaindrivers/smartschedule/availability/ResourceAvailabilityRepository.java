@@ -5,20 +5,23 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import static java.sql.Timestamp.from;
 
 class ResourceAvailabilityRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final AvailabilityParentRollups parentRollups;
 
-    ResourceAvailabilityRepository(JdbcTemplate client) {
+    ResourceAvailabilityRepository(JdbcTemplate client, AvailabilityParentRollups parentRollups) {
         this.jdbcTemplate = client;
+        this.parentRollups = parentRollups;
     }
 
     void saveNew(ResourceAvailability resourceAvailability) {
@@ -49,37 +52,45 @@ class ResourceAvailabilityRepository {
                     ps.setBoolean(7, false);
                     ps.setInt(8, 0);
                 });
+        parentRollups.childrenCreated(availabilities);
     }
 
     List<ResourceAvailability> loadAllWithinSlot(ResourceId resourceId, TimeSlot segment) {
         return jdbcTemplate
                 .query("""
                                 select * from availabilities where resource_id = ? 
-                                and from_date >= ? and to_date <= ?
+                                and from_date < ? and to_date > ?
                                 """, ResourceAvailabilityRowMapper.rowMapper,
-                        resourceId.getId(), from(segment.from()), from(segment.to()));
+                        resourceId.getId(), from(segment.to()), from(segment.from()));
+    }
+
+    //one query for the whole window; segments overlapping slots of particular resources are filtered afterwards
+    List<ResourceAvailability> loadAllWithinSlots(Map<ResourceId, TimeSlot> segments) {
+        UUID[] ids = segments.keySet().stream().map(ResourceId::getId).toArray(UUID[]::new);
+        Instant from = segments.values().stream().map(TimeSlot::from).min(Instant::compareTo).orElse(Instant.EPOCH);
+        Instant to = segments.values().stream().map(TimeSlot::to).max(Instant::compareTo).orElse(Instant.EPOCH);
+        return jdbcTemplate
+                .query("""
+                                select * from availabilities where resource_id = ANY(?::uuid[])
+                                and from_date < ? and to_date > ?
+                                """, ResourceAvailabilityRowMapper.rowMapper,
+                        ids, from(to), from(from))
+                .stream()
+                .filter(ra -> overlaps(ra.segment(), segments.get(ra.resourceId())))
+                .toList();
     }
 
     List<ResourceAvailability> loadAllByParentIdWithinSlot(ResourceId parentId, TimeSlot segment) {
         return jdbcTemplate
                 .query("""
                                 select * from availabilities where resource_parent_id = ? 
-                                and from_date >= ? and to_date <= ?
+                                and from_date < ? and to_date > ?
                                 """, ResourceAvailabilityRowMapper.rowMapper,
-                        parentId.getId(), from(segment.from()), from(segment.to()));
+                        parentId.getId(), from(segment.to()), from(segment.from()));
     }
 
     boolean saveCheckingVersion(ResourceAvailability resourceAvailability) {
-        UUID id = resourceAvailability.id().id();
-        int version = resourceAvailability.version();
-        int update = jdbcTemplate
-                .update("""
-                                UPDATE availabilities 
-                                SET taken_by = ?, disabled = ?, version = ? 
-                                WHERE id = ? AND version = ?
-                                """,
-                        resourceAvailability.blockedBy().id(), resourceAvailability.isDisabled(), version + 1, id, version);
-        return update == 1;
+        return saveCheckingVersion(List.of(resourceAvailability));
     }
 
     boolean saveCheckingVersion(ResourceGroupedAvailability groupedAvailability) {
@@ -87,21 +98,90 @@ class ResourceAvailabilityRepository {
     }
 
     boolean saveCheckingVersion(List<ResourceAvailability> resourceAvailabilities) {
-        int[][] results = jdbcTemplate.batchUpdate("""
-                        UPDATE availabilities 
-                        SET taken_by = ?, disabled = ?, version = ? 
-                        WHERE id = ? AND version = ?
+        return saveReturningStale(resourceAvailabilities).isEmpty();
+    }
+
+    //one statement for the whole group; rows not returned were changed by someone else in the meantime
+    //free children of parents are updated and the change is logged within the same statement, previous state is read from the joined row
+    List<ResourceAvailability> saveReturningStale(List<ResourceAvailability> resourceAvailabilities) {
+        if (resourceAvailabilities.isEmpty()) {
+            return List.of();
+        }
+        UUID[] ids = resourceAvailabilities.stream().map(ra -> ra.id().id()).toArray(UUID[]::new);
+        int[] versions = resourceAvailabilities.stream().mapToInt(ResourceAvailability::version).toArray();
+        String[] takenBy = resourceAvailabilities.stream()
+                .map(ra -> ra.blockedBy().byNone() ? null : ra.blockedBy().id().toString())
+                .toArray(String[]::new);
+        Boolean[] disabled = resourceAvailabilities.stream().map(ResourceAvailability::isDisabled).toArray(Boolean[]::new);
+        Set<UUID> saved = new HashSet<>(jdbcTemplate.queryForList("""
+                        WITH updated AS (
+                            UPDATE availabilities a
+                            SET taken_by = u.taken_by, disabled = u.disabled, version = a.version + 1
+                            FROM unnest(?::uuid[], ?::int[], ?::uuid[], ?::boolean[]) AS u(id, version, taken_by, disabled),
+                            availabilities previous
+                            WHERE a.id = u.id AND a.version = u.version
+                            AND previous.id = a.id AND previous.from_date = a.from_date
+                            RETURNING a.id, a.resource_id, a.resource_parent_id, a.from_date, a.to_date, a.taken_by, a.disabled,
+                            (u.taken_by IS NULL AND NOT u.disabled)::int - (previous.taken_by IS NULL AND NOT previous.disabled)::int AS delta
+                        ),
+                        logged AS (
+                            INSERT INTO availability_changes (resource_id, from_date, to_date, taken_by, disabled)
+                            SELECT resource_id, from_date, to_date, taken_by, disabled FROM updated
+                        ),
+                        rolled_up AS (
+                            INSERT INTO availability_parent_rollups (resource_parent_id, from_date, to_date, free_children)
+                            SELECT resource_parent_id, from_date, to_date, SUM(delta)
+                            FROM updated
+                            WHERE resource_parent_id IS NOT NULL
+                            GROUP BY resource_parent_id, from_date, to_date
+                            HAVING SUM(delta) <> 0
+                            ORDER BY resource_parent_id, from_date
+                        """ + AvailabilityParentRollups.UPSERT_DELTA + """
+                        )
+                        SELECT id FROM updated
                         """,
-                resourceAvailabilities,
-                100,
-                (PreparedStatement ps, ResourceAvailability ra) -> {
-                    ps.setObject(1, ra.blockedBy().id());
-                    ps.setObject(2, ra.isDisabled());
-                    ps.setInt(3, ra.version() + 1);
-                    ps.setObject(4, ra.id().id());
-                    ps.setInt(5, ra.version());
-                });
-        return Stream.of(results).flatMapToInt(IntStream::of).allMatch(i -> i == 1);
+                UUID.class,
+                ids, versions, takenBy, disabled));
+        return resourceAvailabilities.stream()
+                .filter(ra -> !saved.contains(ra.id().id()))
+                .toList();
+    }
+
+    List<ResourceAvailability> loadAllBlockedBy(Owner owner, TimeSlot within) {
+        return jdbcTemplate
+                .query("""
+                                select * from availabilities where taken_by = ?
+                                and from_date < ? and to_date > ?
+                                """, ResourceAvailabilityRowMapper.rowMapper,
+                        owner.id(), from(within.to()), from(within.from()));
+    }
+
+    //disabled segments stay as they are, as with a release of a single slot
+    List<ResourceAvailability> releaseAllOf(Owner owner) {
+        return jdbcTemplate
+                .query("""
+                                WITH released AS (
+                                    UPDATE availabilities
+                                    SET taken_by = NULL, version = version + 1
+                                    WHERE taken_by = ? AND NOT disabled
+                                    RETURNING *
+                                ),
+                                logged AS (
+                                    INSERT INTO availability_changes (resource_id, from_date, to_date, taken_by, disabled)
+                                    SELECT resource_id, from_date, to_date, taken_by, disabled FROM released
+                                ),
+                                rolled_up AS (
+                                    INSERT INTO availability_parent_rollups (resource_parent_id, from_date, to_date, free_children)
+                                    SELECT resource_parent_id, from_date, to_date, COUNT(*)
+                                    FROM released
+                                    WHERE resource_parent_id IS NOT NULL
+                                    GROUP BY resource_parent_id, from_date, to_date
+                                    ORDER BY resource_parent_id, from_date
+                                """ + AvailabilityParentRollups.UPSERT_DELTA + """
+                                )
+                                SELECT * FROM released
+                                """, ResourceAvailabilityRowMapper.rowMapper,
+                        owner.id());
     }
 
     public ResourceAvailability loadById(ResourceAvailabilityId availabilityId) {
@@ -111,32 +191,8 @@ class ResourceAvailabilityRepository {
                         availabilityId.id());
     }
 
-    public ResourceGroupedAvailability loadAvailabilitiesOfRandomResourceWithin(Set<ResourceId> resourceIds, TimeSlot normalized) {
-        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
-        List<ResourceAvailability> availabilities = jdbcTemplate
-                .query("WITH AvailableResources AS (" +
-                                "                        SELECT resource_id" +
-                                "                        FROM availabilities" +
-                                "                        WHERE resource_id = ANY(?::uuid[])" +
-                                "        AND taken_by IS NULL" +
-                                "        AND from_date >= ?" +
-                                "        AND to_date <= ?" +
-                                "        GROUP BY resource_id" +
-                                ")," +
-                                "        RandomResource AS (" +
-                                "                SELECT resource_id" +
-                                "        FROM AvailableResources" +
-                                "        ORDER BY RANDOM()" +
-                                "        LIMIT 1" +
-                                ")" +
-                                "        SELECT a.*" +
-                                "        FROM availabilities a" +
-                                "        JOIN RandomResource r ON a.resource_id = r.resource_id",
-                        ResourceAvailabilityRowMapper.rowMapper,
-                        ids,
-                        from(normalized.from()),
-                        from(normalized.to()));
-        return new ResourceGroupedAvailability(availabilities);
+    private static boolean overlaps(TimeSlot segment, TimeSlot slot) {
+        return segment.from().isBefore(slot.to()) && segment.to().isAfter(slot.from());
     }
 }
 
@@ -0,0 +1,41 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+//one way of keeping availability of resources; slots are created in one of the stores, reads and writes go through all of them
+//segment sizes are defined by the store creating the slots, once everything to be saved was checked
+interface ResourceAvailabilityStore<S extends StoredSegments> {
+
+    void create(Map<ResourceId, TimeSlot> slots, ResourceId parentId, SegmentInMinutes segment);
+
+    default void importAll(Map<ResourceId, TimeSlot> slots, SegmentInMinutes segment) {
+        create(slots, ResourceId.none(), segment);
+    }
+
+    //called with the slots about to be written, before segments are looked up in any of the stores
+    default void prepareWrite(Map<ResourceId, TimeSlot> slots) {
+    }
+
+    //empty when the store holds no segments of the resource within the slot
+    S find(ResourceId resourceId, TimeSlot within);
+
+    //resources without segments within their slot are left out
+    Map<ResourceId, S> findAll(Map<ResourceId, TimeSlot> slots);
+
+    boolean saveCheckingVersion(S segments);
+
+    //stale segments are not saved, their resources are returned
+    Set<ResourceId> saveReturningStale(Collection<S> segments);
+
+    Calendars load(Set<ResourceId> resourceIds, TimeSlot within);
+
+    Calendars blockedBy(Owner owner, TimeSlot within);
+
+    //released slots of the owner
+    Calendars releaseAllOf(Owner owner);
+}
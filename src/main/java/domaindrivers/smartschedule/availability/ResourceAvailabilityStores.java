@@ -0,0 +1,95 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+//all stores, in the order writes look for segments of a resource: envelopes are materialized into rows, bitmaps come last
+class ResourceAvailabilityStores {
+
+    private final RowAvailabilityStore rows;
+    private final CompactAvailabilityStore compact;
+    private final LazyAvailabilityStore lazy;
+    private final ResourceAvailabilityStore<?> forNewSlots;
+
+    private ResourceAvailabilityStores(RowAvailabilityStore rows, CompactAvailabilityStore compact, LazyAvailabilityStore lazy, ResourceAvailabilityStore<?> forNewSlots) {
+        this.rows = rows;
+        this.compact = compact;
+        this.lazy = lazy;
+        this.forNewSlots = forNewSlots;
+    }
+
+    static ResourceAvailabilityStores withRowsForNewSlots(RowAvailabilityStore rows, CompactAvailabilityStore compact, LazyAvailabilityStore lazy) {
+        return new ResourceAvailabilityStores(rows, compact, lazy, rows);
+    }
+
+    static ResourceAvailabilityStores withLazyForNewSlots(RowAvailabilityStore rows, CompactAvailabilityStore compact, LazyAvailabilityStore lazy) {
+        return new ResourceAvailabilityStores(rows, compact, lazy, lazy);
+    }
+
+    List<ResourceAvailabilityStore<?>> all() {
+        return List.of(lazy, rows, compact);
+    }
+
+    RowAvailabilityStore rows() {
+        return rows;
+    }
+
+    CompactAvailabilityStore compact() {
+        return compact;
+    }
+
+    LazyAvailabilityStore lazy() {
+        return lazy;
+    }
+
+    //slots created without choosing a store explicitly
+    ResourceAvailabilityStore<?> forNewSlots() {
+        return forNewSlots;
+    }
+
+    void prepareWrite(Map<ResourceId, TimeSlot> slots) {
+        all().forEach(store -> store.prepareWrite(slots));
+    }
+
+    Calendars load(Set<ResourceId> resourceIds, TimeSlot within) {
+        Calendars loaded = new Calendars(Map.of());
+        for (ResourceAvailabilityStore<?> store : all()) {
+            loaded = loaded.merge(store.load(resourceIds, within));
+        }
+        return loaded;
+    }
+
+    //segment rows are streamed, the other stores are loaded up front and merged into the streamed calendars
+    Stream<Calendar> stream(Set<ResourceId> resourceIds, TimeSlot within) {
+        Calendars notStreamed = compact.load(resourceIds, within).merge(lazy.load(resourceIds, within));
+        Set<ResourceId> streamed = new HashSet<>();
+        return Stream.concat(
+                rows.stream(resourceIds, within)
+                        .peek(calendar -> streamed.add(calendar.resourceId()))
+                        .map(calendar -> notStreamed.calendars().containsKey(calendar.resourceId()) ? Calendars.of(calendar).merge(notStreamed).get(calendar.resourceId()) : calendar),
+                Stream.of(notStreamed)
+                        .flatMap(calendars -> calendars.calendars().values().stream())
+                        .filter(calendar -> !streamed.contains(calendar.resourceId())));
+    }
+
+    Calendars blockedBy(Owner owner, TimeSlot within) {
+        Calendars blocked = new Calendars(Map.of());
+        for (ResourceAvailabilityStore<?> store : all()) {
+            blocked = blocked.merge(store.blockedBy(owner, within));
+        }
+        return blocked;
+    }
+
+    Calendars releaseAllOf(Owner owner) {
+        Calendars released = new Calendars(Map.of());
+        for (ResourceAvailabilityStore<?> store : all()) {
+            released = released.merge(store.releaseAllOf(owner));
+        }
+        return released;
+    }
+}
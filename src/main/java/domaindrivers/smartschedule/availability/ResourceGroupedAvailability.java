@@ -1,8 +1,12 @@
 package domaindrivers.smartschedule.availability;
 
+import domaindrivers.smartschedule.availability.segment.SegmentCursor;
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
 import domaindrivers.smartschedule.availability.segment.Segments;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -11,7 +15,7 @@ import java.util.stream.Collectors;
 import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.defaultSegment;
 import static java.util.stream.Collectors.toList;
 
-class ResourceGroupedAvailability {
+class ResourceGroupedAvailability implements StoredSegments {
 
     private final List<ResourceAvailability> resourceAvailabilities;
 
@@ -29,15 +33,20 @@ class ResourceGroupedAvailability {
     }
 
     public static ResourceGroupedAvailability of(ResourceId resourceId, TimeSlot timeslot, ResourceId parentId) {
-        List<ResourceAvailability> resourceAvailabilities = Segments
-                .split(timeslot, defaultSegment())
-                .stream()
-                .map(segment -> new ResourceAvailability(ResourceAvailabilityId.newOne(), resourceId, parentId, segment))
-                .toList();
+        return of(resourceId, timeslot, parentId, defaultSegment());
+    }
+
+    static ResourceGroupedAvailability of(ResourceId resourceId, TimeSlot timeslot, ResourceId parentId, SegmentInMinutes unit) {
+        List<ResourceAvailability> resourceAvailabilities = new ArrayList<>();
+        SegmentCursor cursor = Segments.cursor(timeslot, unit);
+        while (cursor.next()) {
+            resourceAvailabilities.add(new ResourceAvailability(ResourceAvailabilityId.newOne(), resourceId, parentId, cursor.segment()));
+        }
         return new ResourceGroupedAvailability(resourceAvailabilities);
     }
 
-    boolean block(Owner requester) {
+    @Override
+    public boolean block(Owner requester) {
         for (ResourceAvailability resourceAvailability : resourceAvailabilities) {
             if (!resourceAvailability.block(requester)) {
                 return false;
@@ -46,7 +55,8 @@ class ResourceGroupedAvailability {
         return true;
     }
 
-    boolean disable(Owner requester) {
+    @Override
+    public boolean disable(Owner requester) {
         for (ResourceAvailability resourceAvailability : resourceAvailabilities) {
             if (!resourceAvailability.disable(requester)) {
                 return false;
@@ -55,7 +65,8 @@ class ResourceGroupedAvailability {
         return true;
     }
 
-    boolean release(Owner requester) {
+    @Override
+    public boolean release(Owner requester) {
         for (ResourceAvailability resourceAvailability : resourceAvailabilities) {
             if (!resourceAvailability.release(requester)) {
                 return false;
@@ -111,11 +122,20 @@ class ResourceGroupedAvailability {
                 .allMatch(ra -> ra.blockedBy().byNone());
     }
 
-    boolean hasNoSlots() {
+    @Override
+    public boolean hasNoSlots() {
         return resourceAvailabilities.isEmpty();
     }
 
-    Set<Owner> owners() {
+    @Override
+    public TimeSlot extent() {
+        Instant from = resourceAvailabilities.stream().map(ra -> ra.segment().from()).min(Instant::compareTo).orElse(Instant.EPOCH);
+        Instant to = resourceAvailabilities.stream().map(ra -> ra.segment().to()).max(Instant::compareTo).orElse(Instant.EPOCH);
+        return new TimeSlot(from, to);
+    }
+
+    @Override
+    public Set<Owner> owners() {
         return resourceAvailabilities
                 .stream()
                 .map(ResourceAvailability::blockedBy)
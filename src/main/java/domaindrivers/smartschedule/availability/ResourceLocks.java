@@ -0,0 +1,162 @@
+package domaindrivers.smartschedule.availability;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+//serializes writers of hot resources; both kinds of locks are held until the transaction completes
+//locks of many resources are always taken in the same order (by key, stripes by index), so that writers can't deadlock on each other;
+//waiting for a stripe is bounded anyway, as postgres doesn't see those locks
+//modes are stored with the resource, every instance uses the same one; they are cached for modeCacheTtl,
+//so a mode changed by another instance is used here after that time at the latest
+class ResourceLocks {
+
+    private static final int MAX_CACHED_MODES = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrencyMode defaultMode;
+    private final ReentrantLock[] stripes;
+    private final long stripeTimeoutInNanos;
+    private final long modeCacheTtlInNanos;
+    private final Map<ResourceId, CachedMode> cachedModes = new ConcurrentHashMap<>();
+
+    private record CachedMode(ConcurrencyMode mode, long loadedAt) {
+    }
+
+    ResourceLocks(JdbcTemplate jdbcTemplate, ConcurrencyMode defaultMode, int stripes, Duration stripeTimeout, Duration modeCacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultMode = defaultMode;
+        this.modeCacheTtlInNanos = modeCacheTtl.toNanos();
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.stripeTimeoutInNanos = stripeTimeout.toNanos();
+    }
+
+    ConcurrencyMode modeOf(ResourceId resourceId) {
+        return modesOf(Set.of(resourceId)).get(resourceId);
+    }
+
+    //resources without a stored mode use the default one, which is cached as well
+    Map<ResourceId, ConcurrencyMode> modesOf(Set<ResourceId> resourceIds) {
+        long now = System.nanoTime();
+        Map<ResourceId, ConcurrencyMode> modes = new HashMap<>();
+        Set<ResourceId> notCached = new HashSet<>();
+        resourceIds.forEach(resourceId -> {
+            CachedMode cached = cachedModes.get(resourceId);
+            if (cached != null && now - cached.loadedAt() < modeCacheTtlInNanos) {
+                modes.put(resourceId, cached.mode());
+            } else {
+                notCached.add(resourceId);
+            }
+        });
+        if (notCached.isEmpty()) {
+            return modes;
+        }
+        Map<ResourceId, ConcurrencyMode> loaded = load(notCached);
+        if (modeCacheTtlInNanos > 0) {
+            if (cachedModes.size() + loaded.size() > MAX_CACHED_MODES) {
+                cachedModes.clear();
+            }
+            loaded.forEach((resourceId, mode) -> cachedModes.put(resourceId, new CachedMode(mode, now)));
+        }
+        modes.putAll(loaded);
+        return modes;
+    }
+
+    private Map<ResourceId, ConcurrencyMode> load(Set<ResourceId> resourceIds) {
+        Map<ResourceId, ConcurrencyMode> modes = new HashMap<>();
+        resourceIds.forEach(resourceId -> modes.put(resourceId, defaultMode));
+        UUID[] ids = resourceIds.stream().map(ResourceId::getId).toArray(UUID[]::new);
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT resource_id, mode FROM availability_concurrency_modes WHERE resource_id = ANY (?)");
+                    statement.setArray(1, connection.createArrayOf("uuid", ids));
+                    return statement;
+                },
+                rs -> {
+                    modes.put(new ResourceId(rs.getObject("resource_id", UUID.class)), ConcurrencyMode.valueOf(rs.getString("mode")));
+                });
+        return modes;
+    }
+
+    void use(ResourceId resourceId, ConcurrencyMode mode) {
+        jdbcTemplate.update("""
+                        INSERT INTO availability_concurrency_modes (resource_id, mode) VALUES (?, ?)
+                        ON CONFLICT (resource_id) DO UPDATE SET mode = excluded.mode
+                        """,
+                resourceId.getId(), mode.name());
+        cachedModes.remove(resourceId);
+    }
+
+    <T> T withLock(ResourceId resourceId, ConcurrencyMode mode, Supplier<T> action) {
+        return withLocks(Map.of(resourceId, mode), action);
+    }
+
+    <T> T withLocks(Map<ResourceId, ConcurrencyMode> modes, Supplier<T> action) {
+        SortedSet<Long> advisoryKeys = new TreeSet<>();
+        SortedSet<Integer> stripeIndexes = new TreeSet<>();
+        modes.forEach((resourceId, mode) -> {
+            switch (mode) {
+                case OPTIMISTIC -> {
+                }
+                case ADVISORY_LOCK -> advisoryKeys.add(key(resourceId));
+                case STRIPED_LOCK -> stripeIndexes.add(Math.floorMod(key(resourceId), stripes.length));
+            }
+        });
+        advisoryKeys.forEach(key -> jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", (ResultSetExtractor<Void>) rs -> null, key));
+        if (stripeIndexes.isEmpty()) {
+            return action.get();
+        }
+        List<ReentrantLock> locked = new ArrayList<>();
+        try {
+            for (int index : stripeIndexes) {
+                lock(stripes[index]);
+                locked.add(stripes[index]);
+            }
+        } catch (RuntimeException e) {
+            locked.forEach(ReentrantLock::unlock);
+            throw e;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                return action.get();
+            } finally {
+                locked.forEach(ReentrantLock::unlock);
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                locked.forEach(ReentrantLock::unlock);
+            }
+        });
+        return action.get();
+    }
+
+    private void lock(ReentrantLock stripe) {
+        try {
+            if (!stripe.tryLock(stripeTimeoutInNanos, TimeUnit.NANOSECONDS)) {
+                throw new CannotAcquireLockException("Resource lock stripe not acquired within " + Duration.ofNanos(stripeTimeoutInNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for resource lock stripe", e);
+        }
+    }
+
+    private static long key(ResourceId resourceId) {
+        UUID id = resourceId.getId();
+        return id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+    }
+}
@@ -0,0 +1,102 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+//one row per segment; the only store with history of changes and calendars streamed from the database
+class RowAvailabilityStore implements ResourceAvailabilityStore<ResourceGroupedAvailability> {
+
+    private final ResourceAvailabilityRepository availabilityRepository;
+    private final ResourceAvailabilityReadModel availabilityReadModel;
+    private final ResourceAvailabilityBulkLoader bulkLoader;
+    private final AvailabilitySegmentSizes segmentSizes;
+
+    RowAvailabilityStore(ResourceAvailabilityRepository availabilityRepository, ResourceAvailabilityReadModel availabilityReadModel, ResourceAvailabilityBulkLoader bulkLoader, AvailabilitySegmentSizes segmentSizes) {
+        this.availabilityRepository = availabilityRepository;
+        this.availabilityReadModel = availabilityReadModel;
+        this.bulkLoader = bulkLoader;
+        this.segmentSizes = segmentSizes;
+    }
+
+    @Override
+    public void create(Map<ResourceId, TimeSlot> slots, ResourceId parentId, SegmentInMinutes segment) {
+        segmentSizes.define(slots.keySet(), segment);
+        slots.forEach((resourceId, slot) -> availabilityRepository.saveNew(ResourceGroupedAvailability.of(resourceId, slot, parentId, segment)));
+    }
+
+    //segments are streamed to the database instead of being inserted in batches
+    @Override
+    public void importAll(Map<ResourceId, TimeSlot> slots, SegmentInMinutes segment) {
+        segmentSizes.define(slots.keySet(), segment);
+        bulkLoader.saveNew(slots.entrySet()
+                .stream()
+                .flatMap(slot -> ResourceGroupedAvailability.of(slot.getKey(), slot.getValue(), ResourceId.none(), segment).availabilities().stream()));
+    }
+
+    @Override
+    public ResourceGroupedAvailability find(ResourceId resourceId, TimeSlot within) {
+        return new ResourceGroupedAvailability(availabilityRepository.loadAllWithinSlot(resourceId, within));
+    }
+
+    @Override
+    public Map<ResourceId, ResourceGroupedAvailability> findAll(Map<ResourceId, TimeSlot> slots) {
+        Map<ResourceId, List<ResourceAvailability>> rows = new HashMap<>();
+        availabilityRepository.loadAllWithinSlots(slots)
+                .forEach(ra -> rows.computeIfAbsent(ra.resourceId(), id -> new ArrayList<>()).add(ra));
+        Map<ResourceId, ResourceGroupedAvailability> found = new HashMap<>();
+        rows.forEach((resourceId, availabilities) -> found.put(resourceId, new ResourceGroupedAvailability(availabilities)));
+        return found;
+    }
+
+    @Override
+    public boolean saveCheckingVersion(ResourceGroupedAvailability segments) {
+        return availabilityRepository.saveCheckingVersion(segments);
+    }
+
+    @Override
+    public Set<ResourceId> saveReturningStale(Collection<ResourceGroupedAvailability> segments) {
+        return availabilityRepository.saveReturningStale(segments.stream().flatMap(grouped -> grouped.availabilities().stream()).toList())
+                .stream()
+                .map(ResourceAvailability::resourceId)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Calendars load(Set<ResourceId> resourceIds, TimeSlot within) {
+        return availabilityReadModel.loadAll(resourceIds, within);
+    }
+
+    //has to be closed, and consumed within a transaction to be fetched in batches
+    Stream<Calendar> stream(Set<ResourceId> resourceIds, TimeSlot within) {
+        return availabilityReadModel.streamAll(resourceIds, within);
+    }
+
+    @Override
+    public Calendars blockedBy(Owner owner, TimeSlot within) {
+        return Calendars.ofSegments(owner, availabilityRepository.loadAllBlockedBy(owner, within));
+    }
+
+    //single statement regardless of the number of resources
+    @Override
+    public Calendars releaseAllOf(Owner owner) {
+        return Calendars.ofSegments(owner, availabilityRepository.releaseAllOf(owner));
+    }
+
+    ResourceGroupedAvailability findByParentId(ResourceId parentId, TimeSlot within) {
+        return new ResourceGroupedAvailability(availabilityRepository.loadAllByParentIdWithinSlot(parentId, within));
+    }
+
+    Calendar loadAsOf(ResourceId resourceId, TimeSlot within, Instant asOf) {
+        return availabilityReadModel.loadAsOf(resourceId, within, asOf);
+    }
+
+    //resources of every store, not only the ones with segment rows
+    Set<ResourceId> resourcesWithin(TimeSlot within) {
+        return availabilityReadModel.resourcesWithin(within);
+    }
+}
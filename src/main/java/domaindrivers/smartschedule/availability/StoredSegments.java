@@ -0,0 +1,22 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.util.Set;
+
+//segments of one resource within a slot as loaded from a store; changed in memory and saved back by the same store
+interface StoredSegments {
+
+    boolean hasNoSlots();
+
+    boolean block(Owner requester);
+
+    boolean release(Owner requester);
+
+    boolean disable(Owner requester);
+
+    Set<Owner> owners();
+
+    //whole segments, which may reach beyond the slot they were loaded for
+    TimeSlot extent();
+}
@@ -0,0 +1,10 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+public record UtilisationBucket(TimeSlot slot, long free, long taken, long disabled) {
+
+    public long total() {
+        return free + taken + disabled;
+    }
+}
@@ -0,0 +1,14 @@
+package domaindrivers.smartschedule.availability;
+
+enum WriteOutcome {
+
+    APPLIED,
+    //operation is not allowed by the current state, trying again makes no sense
+    REJECTED,
+    //state changed between reading and saving, operation may succeed on fresh state
+    STALE;
+
+    static WriteOutcome saved(boolean saved) {
+        return saved ? APPLIED : STALE;
+    }
+}
@@ -0,0 +1,52 @@
+package domaindrivers.smartschedule.availability.segment;
+
+import java.time.Instant;
+
+//segment boundaries as minutes since epoch; segments are counted from the full hour, like in the original normalization
+final class EpochMinutes {
+
+    private static final long NANOS_IN_MINUTE = 60_000_000_000L;
+    private static final long MINUTES_IN_HOUR = 60;
+
+    private EpochMinutes() {
+    }
+
+    static long normalizedStart(Instant start, int segmentInMinutes) {
+        long hour = hourOf(start);
+        long offsetInNanos = nanosSince(hour, start);
+        long segmentInNanos = segmentInMinutes * NANOS_IN_MINUTE;
+        if (offsetInNanos < segmentInNanos) {
+            return hour;
+        }
+        return hour + ceilDiv(offsetInNanos, segmentInNanos) * segmentInMinutes;
+    }
+
+    static long normalizedEnd(Instant end, int segmentInMinutes) {
+        long hour = hourOf(end);
+        return hour + ceilDiv(nanosSince(hour, end), segmentInMinutes * NANOS_IN_MINUTE) * segmentInMinutes;
+    }
+
+    static long segmentsCount(long fromInclusive, long toExclusive, int segmentInMinutes) {
+        return ceilDiv(Math.max(0, toExclusive - fromInclusive), segmentInMinutes);
+    }
+
+    static long of(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    static Instant toInstant(long epochMinute) {
+        return Instant.ofEpochSecond(epochMinute * 60);
+    }
+
+    private static long hourOf(Instant instant) {
+        return Math.floorDiv(of(instant), MINUTES_IN_HOUR) * MINUTES_IN_HOUR;
+    }
+
+    private static long nanosSince(long epochMinute, Instant instant) {
+        return (instant.getEpochSecond() - epochMinute * 60) * 1_000_000_000L + instant.getNano();
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
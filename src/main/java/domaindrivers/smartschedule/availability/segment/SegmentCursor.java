@@ -0,0 +1,39 @@
+package domaindrivers.smartschedule.availability.segment;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+//walks segments of a normalized slot as epoch minutes, without creating intermediate objects
+public final class SegmentCursor {
+
+    private final long end;
+    private final int segmentInMinutes;
+    private long current;
+    private long next;
+
+    SegmentCursor(long start, long end, int segmentInMinutes) {
+        this.end = end;
+        this.segmentInMinutes = segmentInMinutes;
+        this.next = start;
+    }
+
+    public boolean next() {
+        if (next >= end) {
+            return false;
+        }
+        current = next;
+        next = Math.min(current + segmentInMinutes, end);
+        return true;
+    }
+
+    public long segmentStart() {
+        return current;
+    }
+
+    public long segmentEnd() {
+        return next;
+    }
+
+    public TimeSlot segment() {
+        return new TimeSlot(EpochMinutes.toInstant(current), EpochMinutes.toInstant(next));
+    }
+}
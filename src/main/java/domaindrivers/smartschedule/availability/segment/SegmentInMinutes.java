@@ -23,4 +23,8 @@ public record SegmentInMinutes(int value) {
     public static SegmentInMinutes defaultSegment() {
         return of(Segments.DEFAULT_SEGMENT_DURATION_IN_MINUTES);
     }
+
+    public static SegmentInMinutes minimalSegment() {
+        return of(Segments.MINIMAL_SEGMENT_DURATION_IN_MINUTES, Segments.MINIMAL_SEGMENT_DURATION_IN_MINUTES);
+    }
 }
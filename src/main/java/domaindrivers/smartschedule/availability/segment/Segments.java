@@ -7,6 +7,7 @@ import java.util.List;
 public class Segments {
 
     public static final int DEFAULT_SEGMENT_DURATION_IN_MINUTES = 60;
+    public static final int MINIMAL_SEGMENT_DURATION_IN_MINUTES = 15;
 
     public static List<TimeSlot> split(TimeSlot timeSlot, SegmentInMinutes unit) {
         TimeSlot normalizedSlot = normalizeToSegmentBoundaries(timeSlot, unit);
@@ -16,4 +17,9 @@ public class Segments {
     public static TimeSlot normalizeToSegmentBoundaries(TimeSlot timeSlot, SegmentInMinutes unit) {
         return new SlotToNormalizedSlot().apply(timeSlot, unit);
     }
+
+    public static SegmentCursor cursor(TimeSlot timeSlot, SegmentInMinutes unit) {
+        TimeSlot normalizedSlot = normalizeToSegmentBoundaries(timeSlot, unit);
+        return new SegmentCursor(EpochMinutes.of(normalizedSlot.from()), EpochMinutes.of(normalizedSlot.to()), unit.value());
+    }
 }
@@ -8,8 +8,7 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import static java.util.Comparator.comparing;
+import java.util.Set;
 
 class ScheduleBasedOnChosenResourcesAvailabilityCalculator {
 
@@ -47,16 +46,14 @@ class ScheduleBasedOnChosenResourcesAvailabilityCalculator {
                 .orElse(TimeSlot.empty());
     }
 
+    //first window of every resource long enough for the stage; adjacent available slots of a resource count as one window
     private List<TimeSlot> possibleSlots(Calendars chosenResourcesCalendars, Stage stage) {
         return stage.resources()
                 .stream()
                 .map(resource ->
                         chosenResourcesCalendars
-                                .get(resource)
-                                .availableSlots()
+                                .commonAvailableSlots(Set.of(resource), stage.duration())
                                 .stream()
-                                .sorted(comparing(TimeSlot::from))
-                                .filter(slot -> isSlotLongEnoughForStage(stage, slot))
                                 .findFirst()
                                 .orElse(TimeSlot.empty()))
                 .toList();
@@ -30,10 +30,13 @@ class VerifyNeededResourcesAvailableInTimeSlot {
     }
 
     private void notifyAboutNotAvailableResources(Set<ResourceId> resourcedIds, TimeSlot timeSlot, ProjectId projectId) {
-        Set<ResourceId> notAvailable = new HashSet<>();
         Calendars calendars = availabilityFacade.loadCalendars(resourcedIds, timeSlot);
+        if (isAvailable(calendars, resourcedIds, timeSlot)) {
+            return;
+        }
+        Set<ResourceId> notAvailable = new HashSet<>();
         for (ResourceId resourceId : resourcedIds) {
-            if (calendars.get(resourceId).availableSlots().stream().noneMatch(timeSlot::within)) {
+            if (!isAvailable(calendars, Set.of(resourceId), timeSlot)) {
                 notAvailable.add(resourceId);
             }
         }
@@ -41,4 +44,9 @@ class VerifyNeededResourcesAvailableInTimeSlot {
             riskPushNotification.notifyAboutResourcesNotAvailable(projectId, notAvailable);
         }
     }
+
+    //one intersection of free runs for all resources; single resources are checked only when it does not cover the slot
+    private boolean isAvailable(Calendars calendars, Set<ResourceId> resourceIds, TimeSlot timeSlot) {
+        return calendars.commonAvailableSlots(resourceIds, timeSlot.duration()).stream().anyMatch(timeSlot::within);
+    }
 }
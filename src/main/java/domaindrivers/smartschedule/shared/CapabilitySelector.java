@@ -3,6 +3,8 @@ package domaindrivers.smartschedule.shared;
 
 
 import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilityCatalogue;
+import domaindrivers.smartschedule.shared.capability.CapabilitySet;
 
 import java.io.Serializable;
 import java.util.*;
@@ -32,10 +34,41 @@ public record CapabilitySelector(Set<Capability> capabilities, SelectingPolicy s
 
     public boolean canPerform(Set<Capability> capabilities) {
         if (capabilities.size() == 1) {
-            return new HashSet<>(this.capabilities).containsAll(capabilities);
+            return this.capabilities.containsAll(capabilities);
         }
         return selectingPolicy.equals(SelectingPolicy.ALL_SIMULTANEOUSLY) &&
-                new HashSet<>(this.capabilities).containsAll(capabilities);
+                this.capabilities.containsAll(capabilities);
+    }
+
+    public Compiled compile() {
+        return new Compiled(CapabilityCatalogue.setOf(capabilities), selectingPolicy.equals(SelectingPolicy.ALL_SIMULTANEOUSLY));
+    }
+
+    //matches like the selector, with bitwise checks instead of hashing; compile once, match in loops
+    public static final class Compiled {
+
+        private final CapabilitySet capabilities;
+        private final boolean allSimultaneously;
+
+        private Compiled(CapabilitySet capabilities, boolean allSimultaneously) {
+            this.capabilities = capabilities;
+            this.allSimultaneously = allSimultaneously;
+        }
+
+        public boolean canPerform(int capabilityId) {
+            return capabilities.contains(capabilityId);
+        }
+
+        public boolean canPerform(Capability capability) {
+            return canPerform(CapabilityCatalogue.find(capability));
+        }
+
+        public boolean canPerform(CapabilitySet required) {
+            if (required.size() == 1) {
+                return capabilities.containsAll(required);
+            }
+            return allSimultaneously && capabilities.containsAll(required);
+        }
     }
 
 
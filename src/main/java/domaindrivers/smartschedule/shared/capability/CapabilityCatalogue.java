@@ -0,0 +1,45 @@
+package domaindrivers.smartschedule.shared.capability;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//interns capabilities into dense ids so sets of them can be matched as bitsets;
+//skills, permissions and assets are a small vocabulary, ids are never released
+//static on purpose: selectors are compiled by domain values (CapabilitySelector, Demands) which are not managed beans,
+//and sets compiled against different catalogues would compare unrelated ids without any error, so there is exactly one per process
+//only setOf and idOf intern, looking up capabilities with find does not grow it
+public final class CapabilityCatalogue {
+
+    private static final Map<Capability, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private CapabilityCatalogue() {
+    }
+
+    public static int idOf(Capability capability) {
+        return IDS.computeIfAbsent(capability, c -> NEXT_ID.getAndIncrement());
+    }
+
+    //does not intern, -1 means no compiled set can contain the capability
+    public static int find(Capability capability) {
+        Integer id = IDS.get(capability);
+        return id == null ? -1 : id;
+    }
+
+    public static CapabilitySet setOf(Collection<Capability> capabilities) {
+        int[] ids = new int[capabilities.size()];
+        int max = -1;
+        int i = 0;
+        for (Capability capability : capabilities) {
+            ids[i] = idOf(capability);
+            max = Math.max(max, ids[i++]);
+        }
+        long[] words = new long[(max >> 6) + 1];
+        for (int id : ids) {
+            words[id >>> 6] |= 1L << id;
+        }
+        return new CapabilitySet(words, ids.length);
+    }
+}
@@ -0,0 +1,32 @@
+package domaindrivers.smartschedule.shared.capability;
+
+//bitset of catalogue ids
+public final class CapabilitySet {
+
+    private final long[] words;
+    private final int size;
+
+    CapabilitySet(long[] words, int size) {
+        this.words = words;
+        this.size = size;
+    }
+
+    public boolean contains(int capabilityId) {
+        int word = capabilityId >>> 6;
+        return capabilityId >= 0 && word < words.length && (words[word] & (1L << capabilityId)) != 0;
+    }
+
+    public boolean containsAll(CapabilitySet other) {
+        for (int i = 0; i < other.words.length; i++) {
+            long present = i < words.length ? words[i] : 0L;
+            if ((other.words[i] & ~present) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -6,7 +6,6 @@ import domaindrivers.smartschedule.shared.CapabilitySelector;
 import domaindrivers.smartschedule.shared.capability.Capability;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 
-import java.util.Set;
 import java.util.UUID;
 
 public record AvailableResourceCapability(UUID resourceId, CapabilitySelector capabilitySelector, TimeSlot timeSlot) implements CapacityDimension {
@@ -15,6 +14,6 @@ public record AvailableResourceCapability(UUID resourceId, CapabilitySelector ca
        this(resourceId, CapabilitySelector.canJustPerform(capability), timeSlot);
     }
     boolean performs(Capability capability) {
-        return capabilitySelector.canPerform(Set.of(capability));
+        return capabilitySelector.canPerform(capability);
     }
 }
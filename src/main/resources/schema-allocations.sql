@@ -14,3 +14,60 @@ create table if not exists allocatable_capabilities (
     to_date timestamp not null,
     primary key (id));
 
+create index if not exists allocatable_capabilities_resource_idx on allocatable_capabilities (resource_id, from_date, to_date);
+
+create table if not exists allocatable_capability_index (
+    capability_name text not null,
+    capability_type text not null,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    allocatable_capability_id uuid not null,
+    primary key (capability_name, capability_type, from_date, allocatable_capability_id) include (to_date));
+
+-- lookups ask for capabilities whose slot contains the requested one: the range index finds them without
+-- scanning every earlier slot of the capability, as a range scan on from_date would
+create extension if not exists btree_gist;
+
+create index if not exists allocatable_capability_index_slot_idx on allocatable_capability_index
+using gist (capability_name, capability_type, tsrange(from_date, to_date, '[]'));
+
+create table if not exists schema_migrations (
+    name varchar not null,
+    primary key (name));
+
+-- capabilities saved before the index existed, copied once; skipped without a scan afterwards
+insert into allocatable_capability_index (capability_name, capability_type, from_date, to_date, allocatable_capability_id)
+select o.obj ->> 'name', o.obj ->> 'type', ac.from_date, ac.to_date, ac.id
+from allocatable_capabilities ac
+cross join lateral jsonb_array_elements(ac.possible_capabilities -> 'capabilities') as o(obj)
+where not exists (select 1 from schema_migrations where name = 'allocatable_capability_index')
+on conflict do nothing;
+
+insert into schema_migrations (name) values ('allocatable_capability_index') on conflict do nothing;
+
+create table if not exists project_allocations_headers (
+    project_allocations_id uuid not null,
+    from_date timestamp,
+    to_date timestamp,
+    primary key (project_allocations_id));
+
+create index if not exists project_allocations_headers_dates_idx on project_allocations_headers (from_date, to_date);
+
+create table if not exists project_allocated_capabilities (
+    project_allocations_id uuid not null,
+    allocatable_capability_id uuid not null,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    selecting_policy text not null,
+    capability_names text[] not null,
+    capability_types text[] not null,
+    primary key (project_allocations_id, allocatable_capability_id, from_date, to_date));
+
+create table if not exists project_demands (
+    project_allocations_id uuid not null,
+    position int not null,
+    capability_name text not null,
+    capability_type text not null,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    primary key (project_allocations_id, position));
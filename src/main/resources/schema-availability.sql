@@ -7,6 +7,128 @@ create table if not exists availabilities (
     to_date timestamp not null,
     taken_by uuid,
     disabled boolean not null,
-    primary key (id),
-    unique(resource_id, from_date, to_date));
+    primary key (id, from_date),
+    unique(resource_id, from_date, to_date)) partition by range (from_date);
 
+-- databases created before partitioning have availabilities as a plain table, which the statement above leaves as it is:
+-- its rows are copied into a new partitioned table, which then takes its name; no-op once availabilities is partitioned
+do '
+begin
+    if exists (select 1 from pg_class where oid = to_regclass(''availabilities'') and relkind = ''r'') then
+        create table availabilities_partitioned (
+            id uuid not null,
+            resource_id uuid not null,
+            resource_parent_id uuid,
+            version bigserial not null,
+            from_date timestamp not null,
+            to_date timestamp not null,
+            taken_by uuid,
+            disabled boolean not null,
+            primary key (id, from_date),
+            unique(resource_id, from_date, to_date)) partition by range (from_date);
+        create table availabilities_partitioned_default partition of availabilities_partitioned default;
+        insert into availabilities_partitioned (id, resource_id, resource_parent_id, version, from_date, to_date, taken_by, disabled)
+            select id, resource_id, resource_parent_id, version, from_date, to_date, taken_by, disabled from availabilities;
+        perform setval(pg_get_serial_sequence(''availabilities_partitioned'', ''version''), (select coalesce(max(version), 0) + 1 from availabilities), false);
+        drop table availabilities;
+        alter table availabilities_partitioned rename to availabilities;
+        alter table availabilities_partitioned_default rename to availabilities_default;
+    end if;
+end';
+
+create table if not exists availabilities_default partition of availabilities default;
+
+create index if not exists availabilities_parent_idx on availabilities (resource_parent_id, from_date);
+
+create table if not exists availability_bitmaps (
+    resource_id uuid not null,
+    resource_parent_id uuid,
+    day timestamp not null,
+    segment_in_minutes int not null,
+    segments bytea not null,
+    blockades bytea not null,
+    version bigserial not null,
+    primary key (resource_id, day));
+
+-- owners of the blockades, kept in sync with blockades on every save, so that bitmaps of an owner are found without decoding all of them
+alter table availability_bitmaps add column if not exists owners uuid[] not null default '{}';
+
+create index if not exists availability_bitmaps_owners_idx on availability_bitmaps using gin (owners);
+
+create table if not exists availability_envelopes (
+    resource_id uuid not null,
+    resource_parent_id uuid,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    segment_in_minutes int not null,
+    primary key (resource_id, from_date));
+
+create table if not exists availability_concurrency_modes (
+    resource_id uuid not null,
+    mode varchar not null,
+    primary key (resource_id));
+
+create table if not exists availability_segment_sizes (
+    resource_id uuid not null,
+    segment_in_minutes int not null,
+    primary key (resource_id));
+
+create table if not exists availability_parent_rollups (
+    resource_parent_id uuid not null,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    free_children int not null,
+    primary key (resource_parent_id, from_date, to_date));
+
+create index if not exists availabilities_taken_by_idx on availabilities (taken_by, from_date) where taken_by is not null;
+
+create table if not exists schema_migrations (
+    name varchar not null,
+    primary key (name));
+
+-- added without a default, so that the table is not rewritten under an exclusive lock; new rows get the default,
+-- rows created before the column existed are marked as existing since ever, once; the update is skipped without a scan afterwards
+alter table availabilities add column if not exists created_at timestamptz;
+
+alter table availabilities alter column created_at set default clock_timestamp();
+
+update availabilities set created_at = '-infinity'
+where created_at is null and not exists (select 1 from schema_migrations where name = 'availabilities.created_at');
+
+insert into schema_migrations (name) values ('availabilities.created_at') on conflict do nothing;
+
+-- resources created before segment sizes were stored get the size of their stored segments, once,
+-- so that slots defined for them later can't overlap the existing ones
+insert into availability_segment_sizes (resource_id, segment_in_minutes)
+select resource_id, min(segment_in_minutes)
+from (select resource_id, cast(extract(epoch from to_date - from_date) / 60 as int) as segment_in_minutes from availabilities
+      union all
+      select resource_id, segment_in_minutes from availability_bitmaps
+      union all
+      select resource_id, segment_in_minutes from availability_envelopes) stored
+where not exists (select 1 from schema_migrations where name = 'availability_segment_sizes')
+group by resource_id
+on conflict (resource_id) do nothing;
+
+insert into schema_migrations (name) values ('availability_segment_sizes') on conflict do nothing;
+
+-- owners of bitmaps saved before the column existed are filled once, from the owner ids stored in their 25 byte runs
+update availability_bitmaps b
+set owners = array(select distinct cast(encode(substring(b.blockades from run * 25 + 9 for 16), 'hex') as uuid)
+                   from generate_series(0, length(b.blockades) / 25 - 1) as run)
+where length(b.blockades) > 0 and not exists (select 1 from schema_migrations where name = 'availability_bitmaps.owners');
+
+insert into schema_migrations (name) values ('availability_bitmaps.owners') on conflict do nothing;
+
+-- changed_at is when the change was written, not when its transaction committed
+create table if not exists availability_changes (
+    change_id bigserial not null,
+    resource_id uuid not null,
+    from_date timestamp not null,
+    to_date timestamp not null,
+    taken_by uuid,
+    disabled boolean not null,
+    changed_at timestamptz not null default clock_timestamp(),
+    primary key (change_id));
+
+create index if not exists availability_changes_segment_idx on availability_changes (resource_id, from_date, changed_at);
@@ -194,6 +194,27 @@ class AllocationsToProjectTest {
     }
 
 
+    @Test
+    void demandIsMissingAgainWhenItsOnlySatisfyingCapabilityIsPartiallyReleased() {
+        //given
+        AllocatableCapabilityId javaDev = AllocatableCapabilityId.newOne();
+        TimeSlot febFirstTwoDays = new TimeSlot(FEB_1.from(), FEB_2.to());
+        Demands demands = Demands.of(new Demand(skill("JAVA"), FEB_1), new Demand(skill("JAVA"), FEB_2));
+        //and
+        ProjectAllocations allocations = ProjectAllocations.withDemands(PROJECT_ID, demands);
+        allocations.allocate(ADMIN_ID, CapabilitySelector.canPerformOneOf(skills("JAVA", "RUST")), FEB_2, WHEN);
+        allocations.allocate(javaDev, CapabilitySelector.canJustPerform(skill("JAVA")), febFirstTwoDays, WHEN);
+        assertThat(allocations.missingDemands()).isEqualTo(Demands.none());
+
+        //when
+        allocations.release(javaDev, FEB_1, WHEN);
+        Optional<CapabilityReleased> event = allocations.release(ADMIN_ID, FEB_2, WHEN);
+
+        //then
+        assertThat(allocations.missingDemands()).isEqualTo(Demands.of(new Demand(skill("JAVA"), FEB_1)));
+        assertThat(event).contains(new CapabilityReleased(event.get().eventId(), PROJECT_ID, Demands.of(new Demand(skill("JAVA"), FEB_1)), WHEN));
+    }
+
     @Test
     void canChangeProjectDates() {
         //given
@@ -0,0 +1,145 @@
+package domaindrivers.smartschedule.allocation;
+
+import domaindrivers.smartschedule.MockedEventPublisherConfiguration;
+import domaindrivers.smartschedule.TestDbConfiguration;
+import domaindrivers.smartschedule.allocation.capabilityscheduling.AllocatableCapabilityId;
+import domaindrivers.smartschedule.shared.CapabilitySelector;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static domaindrivers.smartschedule.shared.capability.Capability.skill;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = {TestDbConfiguration.class, MockedEventPublisherConfiguration.class})
+@Sql(scripts = "classpath:schema-allocations.sql")
+class JdbcProjectAllocationsRepositoryTest {
+
+    static final Instant WHEN = Instant.parse("2021-01-01T00:00:00Z");
+    static final TimeSlot JAN = TimeSlot.createMonthlyTimeSlotAtUTC(2021, 1);
+    static final TimeSlot JAN_1 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+    static final TimeSlot JAN_2 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JpaProjectAllocationsRepository jsonbRepository;
+
+    JdbcProjectAllocationsRepository repository;
+
+    TransactionTemplate transaction;
+
+    @BeforeEach
+    void setup() {
+        repository = new JdbcProjectAllocationsRepository(jdbcTemplate);
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void storesAllocationsAndDemandsAsRows() {
+        //given
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        ProjectAllocations project = new ProjectAllocations(projectId, Allocations.none(), Demands.of(new Demand(skill("JAVA"), JAN_1)), JAN);
+        project.allocate(AllocatableCapabilityId.newOne(), CapabilitySelector.canPerformOneOf(Set.of(skill("JAVA"), skill("KOTLIN"))), JAN_1, WHEN);
+        project.allocate(AllocatableCapabilityId.newOne(), CapabilitySelector.canJustPerform(skill("PYTHON")), JAN_2, WHEN);
+
+        //when
+        repository.save(project);
+
+        //then
+        ProjectAllocations loaded = new JdbcProjectAllocationsRepository(jdbcTemplate).findById(projectId).orElseThrow();
+        assertEquals(project.allocations(), loaded.allocations());
+        assertEquals(project.demands(), loaded.demands());
+        assertEquals(JAN, loaded.timeSlot());
+        assertThat(repository.findAllContainingDate(JAN_2.from())).extracting(ProjectAllocations::id).contains(projectId);
+    }
+
+    @Test
+    void savingLoadedProjectWritesOnlyChangedRows() {
+        //given
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        AllocatableCapabilityId kept = AllocatableCapabilityId.newOne();
+        AllocatableCapabilityId released = AllocatableCapabilityId.newOne();
+        ProjectAllocations project = new ProjectAllocations(projectId, Allocations.none(), Demands.of(new Demand(skill("JAVA"), JAN_1)), JAN);
+        project.allocate(kept, CapabilitySelector.canJustPerform(skill("JAVA")), JAN_1, WHEN);
+        project.allocate(released, CapabilitySelector.canJustPerform(skill("JAVA")), JAN_2, WHEN);
+        repository.save(project);
+        long keptRowVersion = rowVersion(projectId, kept);
+        long demandRowVersion = jdbcTemplate.queryForObject("select xmin::text::bigint from project_demands where project_allocations_id = ? and position = 0", Long.class, projectId.id());
+
+        //when
+        ProjectAllocations loaded = transaction.execute(status -> {
+            ProjectAllocations inTransaction = repository.findById(projectId).orElseThrow();
+            inTransaction.release(released, JAN_2, WHEN);
+            inTransaction.addDemands(Demands.of(new Demand(skill("PYTHON"), JAN_2)), WHEN);
+            return repository.save(inTransaction);
+        });
+
+        //then
+        assertEquals(keptRowVersion, rowVersion(projectId, kept));
+        assertEquals(demandRowVersion, jdbcTemplate.queryForObject("select xmin::text::bigint from project_demands where project_allocations_id = ? and position = 0", Long.class, projectId.id()));
+        ProjectAllocations reloaded = new JdbcProjectAllocationsRepository(jdbcTemplate).findById(projectId).orElseThrow();
+        assertEquals(loaded.allocations(), reloaded.allocations());
+        assertEquals(Demands.of(new Demand(skill("JAVA"), JAN_1), new Demand(skill("PYTHON"), JAN_2)), reloaded.demands());
+    }
+
+    @Test
+    void projectLoadedInEarlierTransactionIsRewrittenWhole() {
+        //given
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        AllocatableCapabilityId kept = AllocatableCapabilityId.newOne();
+        ProjectAllocations project = new ProjectAllocations(projectId, Allocations.none(), Demands.none(), JAN);
+        project.allocate(kept, CapabilitySelector.canJustPerform(skill("JAVA")), JAN_1, WHEN);
+        repository.save(project);
+        ProjectAllocations loaded = transaction.execute(status -> repository.findById(projectId).orElseThrow());
+        //and
+        jdbcTemplate.update("delete from project_allocated_capabilities where project_allocations_id = ?", projectId.id());
+
+        //when
+        transaction.execute(status -> repository.save(loaded));
+
+        //then
+        assertEquals(loaded.allocations(), repository.findById(projectId).orElseThrow().allocations());
+    }
+
+    @Test
+    void projectsStoredAsJsonbAreCopiedIntoRows() {
+        //given
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        ProjectAllocations project = new ProjectAllocations(projectId, Allocations.none(), Demands.of(new Demand(skill("JAVA"), JAN_1)), JAN);
+        project.allocate(AllocatableCapabilityId.newOne(), CapabilitySelector.canPerformOneOf(Set.of(skill("JAVA"), skill("KOTLIN"))), JAN_1, WHEN);
+        jsonbRepository.save(project);
+        jdbcTemplate.update("delete from schema_migrations where name = ?", ProjectAllocationsBackfill.MIGRATION);
+        ProjectAllocationsBackfill backfill = new ProjectAllocationsBackfill(jsonbRepository, repository, jdbcTemplate, transaction);
+
+        //when
+        int copied = backfill.backfill();
+
+        //then
+        assertThat(copied).isPositive();
+        ProjectAllocations loaded = repository.findById(projectId).orElseThrow();
+        assertEquals(project.allocations(), loaded.allocations());
+        assertEquals(project.demands(), loaded.demands());
+        assertEquals(JAN, loaded.timeSlot());
+        assertEquals(0, backfill.backfill());
+    }
+
+    long rowVersion(ProjectAllocationsId projectId, AllocatableCapabilityId allocatableCapabilityId) {
+        return jdbcTemplate.queryForObject("select xmin::text::bigint from project_allocated_capabilities where project_allocations_id = ? and allocatable_capability_id = ?",
+                Long.class, projectId.id(), allocatableCapabilityId.getId());
+    }
+}
@@ -25,6 +25,7 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -137,6 +138,109 @@ class ResourceAllocatingTest {
 
     }
 
+    @Test
+    void canAllocateManyCapabilitiesToProjectAtOnce() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot nextDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        Demand javaDemand = new Demand(Capability.skill("JAVA"), oneDay);
+        Demand pythonDemand = new Demand(Capability.skill("PYTHON"), nextDay);
+        //and
+        AllocatableCapabilityId java = createAllocatableResource(new TimeSlot(oneDay.from(), nextDay.to()), Capability.skill("JAVA"), AllocatableResourceId.newOne());
+        AllocatableCapabilityId python = createAllocatableResource(nextDay, Capability.skill("PYTHON"), AllocatableResourceId.newOne());
+        //and
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        allocationFacade.scheduleProjectAllocationDemands(projectId, Demands.of(javaDemand, pythonDemand));
+
+        //when
+        List<UUID> result = allocationFacade.allocateAllToProject(projectId, List.of(
+                new RequestedAllocation(java, oneDay),
+                new RequestedAllocation(java, nextDay),
+                new RequestedAllocation(python, nextDay)));
+
+        //then
+        assertThat(result).containsExactly(java.getId(), java.getId(), python.getId());
+        ProjectsAllocationsSummary summary = allocationFacade.findAllProjectsAllocations();
+        assertThat(summary.projectAllocations().get(projectId).all()).hasSize(3);
+        assertThat(availabilityWasBlocked(java.toAvailabilityResourceId(), oneDay, projectId)).isTrue();
+        assertThat(availabilityWasBlocked(java.toAvailabilityResourceId(), nextDay, projectId)).isTrue();
+        assertThat(availabilityWasBlocked(python.toAvailabilityResourceId(), nextDay, projectId)).isTrue();
+    }
+
+    @Test
+    void nothingIsAllocatedNorBlockedWhenAnyOfCapabilitiesIsNotAvailable() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        //and
+        AllocatableCapabilityId available = createAllocatableResource(oneDay, Capability.skill("JAVA"), AllocatableResourceId.newOne());
+        AllocatableCapabilityId taken = createAllocatableResource(oneDay, Capability.skill("PYTHON"), AllocatableResourceId.newOne());
+        availabilityFacade.block(taken.toAvailabilityResourceId(), oneDay, Owner.newOne());
+        //and
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        allocationFacade.scheduleProjectAllocationDemands(projectId, Demands.none());
+
+        //when
+        CapabilitiesNotAvailableException notAvailable = assertThrows(CapabilitiesNotAvailableException.class, () -> allocationFacade.allocateAllToProject(projectId, List.of(
+                new RequestedAllocation(available, oneDay),
+                new RequestedAllocation(taken, oneDay))));
+
+        //then
+        assertThat(notAvailable.notAvailable()).containsExactly(taken);
+        ProjectsAllocationsSummary summary = allocationFacade.findAllProjectsAllocations();
+        assertThat(summary.projectAllocations().get(projectId).all()).isEmpty();
+        assertThat(availabilityIsReleased(oneDay, available, projectId)).isTrue();
+    }
+
+    @Test
+    void blockadesOfEarlierRoundsAreRolledBackWhenLaterRoundFails() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot nextDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        //and
+        AllocatableCapabilityId java = createAllocatableResource(new TimeSlot(oneDay.from(), nextDay.to()), Capability.skill("JAVA"), AllocatableResourceId.newOne());
+        AllocatableCapabilityId python = createAllocatableResource(oneDay, Capability.skill("PYTHON"), AllocatableResourceId.newOne());
+        availabilityFacade.block(java.toAvailabilityResourceId(), nextDay, Owner.newOne());
+        //and
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        allocationFacade.scheduleProjectAllocationDemands(projectId, Demands.none());
+
+        //when
+        assertThrows(CapabilitiesNotAvailableException.class, () -> allocationFacade.allocateAllToProject(projectId, List.of(
+                new RequestedAllocation(java, oneDay),
+                new RequestedAllocation(python, oneDay),
+                new RequestedAllocation(java, nextDay))));
+
+        //then
+        ProjectsAllocationsSummary summary = allocationFacade.findAllProjectsAllocations();
+        assertThat(summary.projectAllocations().get(projectId).all()).isEmpty();
+        assertThat(availabilityIsReleased(oneDay, java, projectId)).isTrue();
+        assertThat(availabilityIsReleased(oneDay, python, projectId)).isTrue();
+    }
+
+    @Test
+    void nothingIsBlockedWhenAnyOfCapabilitiesIsRequestedOutsideProjectSlot() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot nextDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        //and
+        AllocatableCapabilityId java = createAllocatableResource(oneDay, Capability.skill("JAVA"), AllocatableResourceId.newOne());
+        AllocatableCapabilityId python = createAllocatableResource(nextDay, Capability.skill("PYTHON"), AllocatableResourceId.newOne());
+        //and
+        ProjectAllocationsId projectId = ProjectAllocationsId.newOne();
+        allocationFacade.scheduleProjectAllocationDemands(projectId, Demands.none());
+        allocationFacade.editProjectDates(projectId, oneDay);
+
+        //when
+        List<UUID> result = allocationFacade.allocateAllToProject(projectId, List.of(
+                new RequestedAllocation(java, oneDay),
+                new RequestedAllocation(python, nextDay)));
+
+        //then
+        assertThat(result).isEmpty();
+        assertThat(availabilityIsReleased(oneDay, java, projectId)).isTrue();
+        assertThat(availabilityIsReleased(nextDay, python, projectId)).isTrue();
+    }
+
     AllocatableCapabilityId scheduleCapabilities(AllocatableResourceId allocatableResourceId, CapabilitySelector capabilities, TimeSlot oneDay) {
         List<AllocatableCapabilityId> allocatableCapabilityIds = capabilityScheduler.scheduleResourceCapabilitiesForPeriod(allocatableResourceId, List.of(capabilities), oneDay);
         assert allocatableCapabilityIds.size() == 1;
@@ -138,6 +138,29 @@ class CapabilitySchedulingTest {
 
 
 
+    @Test
+    void eachCapabilityOfSelectorCanBeFound() {
+        //given
+        Capability welding = Capability.skill("WELDING_UNDERWATER");
+        Capability diving = Capability.permission("DIVING_DEEP");
+        CapabilitySelector welderDiver = CapabilitySelector.canPerformAllAtTheTime(Set.of(welding, diving));
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot hourWithinDay = new TimeSlot(oneDay.from(), oneDay.from().plusSeconds(3600));
+        //and
+        capabilityScheduler.scheduleResourceCapabilitiesForPeriod(AllocatableResourceId.newOne(), List.of(welderDiver), oneDay);
+
+        //when
+        AllocatableCapabilitiesSummary welders = capabilityFinder.findCapabilities(welding, hourWithinDay);
+        AllocatableCapabilitiesSummary divers = capabilityFinder.findCapabilities(diving, hourWithinDay);
+        AllocatableCapabilitiesSummary weldingAsPermission = capabilityFinder.findCapabilities(Capability.permission("WELDING_UNDERWATER"), hourWithinDay);
+
+        //then
+        assertThat(welders.all()).hasSize(1);
+        assertThat(divers.all()).hasSize(1);
+        assertEquals(welders.all().get(0).id(), divers.all().get(0).id());
+        assertThat(weldingAsPermission.all()).isEmpty();
+    }
+
     @Test
     void findingTakesIntoAccountSimulationsCapabilities() {
         //given
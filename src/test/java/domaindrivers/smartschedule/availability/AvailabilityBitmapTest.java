@@ -0,0 +1,122 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.defaultSegment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityBitmapTest {
+
+    static final ResourceId RESOURCE_ID = ResourceId.newOne();
+    static final Owner OWNER_ONE = Owner.newOne();
+    static final Owner OWNER_TWO = Owner.newOne();
+
+    @Test
+    void createsOneBitmapPerDay() {
+        //given
+        TimeSlot twoDays = new TimeSlot(Instant.parse("2021-01-01T12:00:00Z"), Instant.parse("2021-01-03T06:00:00Z"));
+
+        //when
+        List<AvailabilityBitmap> bitmaps = AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), twoDays, defaultSegment());
+
+        //then
+        assertEquals(3, bitmaps.size());
+        assertThat(calendar(bitmaps, twoDays).get(Owner.none())).containsExactly(twoDays);
+    }
+
+    @Test
+    void slotsNotAlignedToSegmentsCountedFromMidnightAreRejected() {
+        //given
+        TimeSlot fromTenToTen = new TimeSlot(Instant.parse("2021-01-01T10:00:00Z"), Instant.parse("2021-01-02T10:00:00Z"));
+        TimeSlot fromTen = new TimeSlot(Instant.parse("2021-01-01T10:00:00Z"), Instant.parse("2021-01-01T13:00:00Z"));
+
+        //expect
+        assertThrows(IllegalArgumentException.class, () -> AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), fromTenToTen, SegmentInMinutes.of(24 * 60, 24 * 60)));
+        assertThrows(IllegalArgumentException.class, () -> AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), fromTen, SegmentInMinutes.of(90, 15)));
+        assertEquals(1, AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), fromTen, SegmentInMinutes.of(30, 15)).size());
+    }
+
+    @Test
+    void canBlockAndReleaseRangeOfSegments() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        AvailabilityBitmap bitmap = AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), oneDay, defaultSegment()).get(0);
+
+        //when
+        boolean blocked = bitmap.block(OWNER_ONE, twoHours);
+
+        //then
+        assertTrue(blocked);
+        assertFalse(bitmap.block(OWNER_TWO, oneDay));
+        assertFalse(bitmap.release(OWNER_TWO, twoHours));
+        assertTrue(bitmap.release(OWNER_ONE, twoHours));
+        assertTrue(bitmap.block(OWNER_TWO, oneDay));
+    }
+
+    @Test
+    void cantBeBlockedWhileDisabled() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        AvailabilityBitmap bitmap = AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), oneDay, defaultSegment()).get(0);
+        bitmap.block(OWNER_ONE, oneDay);
+
+        //when
+        boolean disabled = bitmap.disable(OWNER_TWO, oneDay);
+
+        //then
+        assertTrue(disabled);
+        assertEquals(Set.of(OWNER_TWO), bitmap.owners(oneDay));
+        assertFalse(bitmap.block(OWNER_ONE, oneDay));
+        assertFalse(bitmap.block(OWNER_TWO, oneDay));
+    }
+
+    @Test
+    void survivesEncodingAsRunLengths() {
+        //given
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        TimeSlot rest = new TimeSlot(twoHours.to(), oneDay.to());
+        AvailabilityBitmap bitmap = AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), oneDay, defaultSegment()).get(0);
+        bitmap.block(OWNER_ONE, twoHours);
+
+        //when
+        AvailabilityBitmap decoded = AvailabilityBitmap.decode(RESOURCE_ID, ResourceId.none(), bitmap.day(), bitmap.segmentInMinutes(),
+                bitmap.encodedSegments(), bitmap.encodedBlockades(), bitmap.version());
+
+        //then
+        Map<Owner, List<TimeSlot>> calendar = calendar(List.of(decoded), oneDay);
+        assertThat(calendar.get(OWNER_ONE)).containsExactly(twoHours);
+        assertThat(calendar.get(Owner.none())).containsExactly(rest);
+    }
+
+    @Test
+    void segmentsOutsideCreatedSlotAreNotAvailable() {
+        //given
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot lastHour = new TimeSlot(oneDay.to().minus(Duration.ofHours(1)), oneDay.to());
+        AvailabilityBitmap bitmap = AvailabilityBitmap.of(RESOURCE_ID, ResourceId.none(), twoHours, defaultSegment()).get(0);
+
+        //expect
+        assertFalse(bitmap.hasNoSlots(oneDay));
+        assertTrue(bitmap.hasNoSlots(lastHour));
+        assertThat(calendar(List.of(bitmap), oneDay).get(Owner.none())).containsExactly(twoHours);
+    }
+
+    Map<Owner, List<TimeSlot>> calendar(List<AvailabilityBitmap> bitmaps, TimeSlot within) {
+        Map<Owner, List<TimeSlot>> calendar = new HashMap<>();
+        bitmaps.forEach(bitmap -> bitmap.addTo(calendar, within));
+        return calendar;
+    }
+}
@@ -0,0 +1,80 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static domaindrivers.smartschedule.availability.segment.SegmentInMinutes.defaultSegment;
+
+//needs docker; run with: java -cp target/test-classes:<test classpath> domaindrivers.smartschedule.availability.AvailabilityBulkInsertBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvailabilityBulkInsertBenchmark {
+
+    @Param({"100", "1000"})
+    int resources;
+
+    PostgreSQLContainer<?> postgres;
+    JdbcTemplate jdbcTemplate;
+    ResourceAvailabilityRepository repository;
+    ResourceAvailabilityBulkLoader bulkLoader;
+    List<ResourceGroupedAvailability> quarter;
+
+    @Setup(Level.Trial)
+    public void startDatabase() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl() + "&reWriteBatchedInserts=true", postgres.getUsername(), postgres.getPassword());
+        new ResourceDatabasePopulator(new ClassPathResource("schema-availability.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        AvailabilityParentRollups parentRollups = new AvailabilityParentRollups(jdbcTemplate);
+        repository = new ResourceAvailabilityRepository(jdbcTemplate, parentRollups);
+        bulkLoader = new ResourceAvailabilityBulkLoader(jdbcTemplate, parentRollups);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareQuarter() {
+        jdbcTemplate.execute("truncate availabilities");
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        TimeSlot slot = new TimeSlot(from, from.plus(Duration.ofDays(90)));
+        quarter = IntStream.range(0, resources)
+                .mapToObj(i -> ResourceGroupedAvailability.of(ResourceId.newOne(), slot, ResourceId.none(), defaultSegment()))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void batchInsert() {
+        quarter.forEach(repository::saveNew);
+    }
+
+    @Benchmark
+    public long binaryCopy() {
+        return bulkLoader.saveNew(quarter.stream().flatMap(grouped -> grouped.availabilities().stream()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AvailabilityBulkInsertBenchmark.class.getSimpleName()).build()).run();
+    }
+}
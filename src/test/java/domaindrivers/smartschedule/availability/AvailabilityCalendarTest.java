@@ -2,16 +2,25 @@ package domaindrivers.smartschedule.availability;
 
 import domaindrivers.smartschedule.MockedEventPublisherConfiguration;
 import domaindrivers.smartschedule.TestDbConfiguration;
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
 import domaindrivers.smartschedule.shared.ClockConfiguration;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static domaindrivers.smartschedule.availability.segment.Segments.DEFAULT_SEGMENT_DURATION_IN_MINUTES;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,6 +32,9 @@ public class AvailabilityCalendarTest {
     @Autowired
     AvailabilityFacade availabilityFacade;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     void loadsCalendarForEntireMonth() {
         //given
@@ -68,5 +80,134 @@ public class AvailabilityCalendarTest {
         assertThat(calendars.get(resourceId2).availableSlots()).containsExactlyInAnyOrderElementsOf(sevenSlots.leftoverAfterRemovingCommonWith(minimumSlot));
     }
 
+    @Test
+    void streamsCalendarsOneResourceAtATime() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId resourceId2 = ResourceId.newOne();
+        ResourceId compactResourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createResourceSlots(resourceId2, oneDay);
+        availabilityFacade.createCompactResourceSlots(compactResourceId, oneDay);
+        availabilityFacade.block(resourceId, firstHour, owner);
+
+        //when
+        List<Calendar> streamed;
+        try (Stream<Calendar> calendars = availabilityFacade.streamCalendars(Set.of(resourceId, resourceId2, compactResourceId), oneDay)) {
+            streamed = calendars.toList();
+        }
+
+        //then
+        assertThat(streamed).hasSize(3);
+        assertThat(streamed).containsAll(availabilityFacade.loadCalendars(Set.of(resourceId, resourceId2, compactResourceId), oneDay).calendars().values());
+    }
+
+    @Test
+    void countsFreeTakenAndDisabledSegmentsPerDay() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId lazyResourceId = ResourceId.newOne();
+        ResourceId parentId = ResourceId.newOne();
+        TimeSlot jan_1 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot jan_2 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        TimeSlot twoDays = new TimeSlot(jan_1.from(), jan_2.to());
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        TimeSlot oneHourOfJan_2 = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 2, Duration.ofHours(1));
+        availabilityFacade.createResourceSlots(resourceId, parentId, twoDays);
+        availabilityFacade.createLazyResourceSlots(lazyResourceId, parentId, jan_1, SegmentInMinutes.defaultSegment());
+        availabilityFacade.block(resourceId, twoHours, Owner.newOne());
+        availabilityFacade.disable(resourceId, oneHourOfJan_2, Owner.newOne());
+
+        //when
+        List<UtilisationBucket> daily = availabilityFacade.utilisation(Set.of(resourceId, lazyResourceId), twoDays, BucketSize.DAY);
+
+        //then
+        assertThat(daily).containsExactly(
+                new UtilisationBucket(jan_1, 46, 2, 0),
+                new UtilisationBucket(jan_2, 23, 0, 1));
+        assertThat(availabilityFacade.utilisationOfParent(parentId, twoDays, BucketSize.DAY)).isEqualTo(daily);
+    }
+
+    @Test
+    void countsCompactSegmentsToo() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId compactResourceId = ResourceId.newOne();
+        ResourceId parentId = ResourceId.newOne();
+        TimeSlot jan_1 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        availabilityFacade.createResourceSlots(resourceId, parentId, jan_1);
+        availabilityFacade.createCompactResourceSlots(compactResourceId, parentId, jan_1);
+        availabilityFacade.block(compactResourceId, twoHours, Owner.newOne());
+        availabilityFacade.disable(resourceId, firstHour, Owner.newOne());
+
+        //when
+        List<UtilisationBucket> daily = availabilityFacade.utilisation(Set.of(resourceId, compactResourceId), jan_1, BucketSize.DAY);
+
+        //then
+        assertThat(daily).containsExactly(new UtilisationBucket(jan_1, 45, 2, 1));
+        assertThat(availabilityFacade.utilisationOfParent(parentId, jan_1, BucketSize.DAY)).isEqualTo(daily);
+        assertThat(availabilityFacade.utilisation(Set.of(compactResourceId), jan_1, BucketSize.HOUR)).hasSize(24)
+                .startsWith(new UtilisationBucket(firstHour, 0, 1, 0));
+    }
+
+    @Test
+    void exportedSnapshotServesTheSameCalendars(@TempDir Path directory) {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId compactResourceId = ResourceId.newOne();
+        ResourceId notExported = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createCompactResourceSlots(compactResourceId, oneDay);
+        availabilityFacade.block(resourceId, twoHours, owner);
+        availabilityFacade.disable(compactResourceId, twoHours, owner);
+        Path file = directory.resolve("calendars.bin");
 
-}
\ No newline at end of file
+        //when
+        availabilityFacade.exportCalendars(oneDay, file);
+
+        //then
+        CalendarSnapshot snapshot = CalendarSnapshot.open(file);
+        Set<ResourceId> exported = Set.of(resourceId, compactResourceId);
+        assertThat(snapshot.loadCalendars(exported, oneDay)).isEqualTo(availabilityFacade.loadCalendars(exported, oneDay));
+        assertThat(snapshot.loadCalendar(resourceId, twoHours).takenBy(owner)).containsExactly(twoHours);
+        assertThat(snapshot.loadCalendar(notExported, oneDay).calendar()).isEmpty();
+    }
+
+    @Test
+    void loadsCalendarAsOfEarlierMoment() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        Owner owner = Owner.newOne();
+        Instant beforeCreation = databaseNow();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        Instant beforeBlockade = databaseNow();
+        availabilityFacade.block(resourceId, twoHours, owner);
+        Instant whileBlocked = databaseNow();
+        availabilityFacade.release(resourceId, twoHours, owner);
+
+        //expect
+        assertThat(availabilityFacade.loadCalendarAsOf(resourceId, oneDay, beforeCreation).calendar()).isEmpty();
+        assertThat(availabilityFacade.loadCalendarAsOf(resourceId, oneDay, beforeBlockade)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+        assertThat(availabilityFacade.loadCalendarAsOf(resourceId, oneDay, whileBlocked).takenBy(owner)).containsExactly(twoHours);
+        assertThat(availabilityFacade.loadCalendarAsOf(resourceId, oneDay, databaseNow())).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+
+        //and
+        new AvailabilityChangeLogCompaction(jdbcTemplate, Clock.systemUTC(), Duration.ZERO).compactBefore(databaseNow());
+        assertThat(availabilityFacade.loadCalendarAsOf(resourceId, oneDay, databaseNow())).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM availability_changes WHERE resource_id = ?", Integer.class, resourceId.getId())).isEqualTo(2);
+    }
+
+    private Instant databaseNow() {
+        return jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class).toInstant();
+    }
+}
@@ -2,6 +2,7 @@ package domaindrivers.smartschedule.availability;
 
 import domaindrivers.smartschedule.MockedEventPublisherConfiguration;
 import domaindrivers.smartschedule.TestDbConfiguration;
+import domaindrivers.smartschedule.availability.segment.SegmentInMinutes;
 import domaindrivers.smartschedule.shared.EventsPublisher;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import org.junit.jupiter.api.Test;
@@ -10,9 +11,12 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
 import java.util.Set;
 
 import static domaindrivers.smartschedule.availability.segment.Segments.DEFAULT_SEGMENT_DURATION_IN_MINUTES;
@@ -29,6 +33,9 @@ class AvailabilityFacadeTest {
     @Autowired
     EventsPublisher eventsPublisher;
 
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     void canCreateAvailabilitySlots() {
         //given
@@ -44,6 +51,24 @@ class AvailabilityFacadeTest {
         assertThat(monthlyCalendar).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
     }
 
+    @Test
+    void canImportAvailabilitySlotsOfManyResources() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId resourceId2 = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoDays = new TimeSlot(oneDay.from(), oneDay.to().plus(Duration.ofDays(1)));
+
+        //when
+        availabilityFacade.importResourceSlots(Map.of(resourceId, oneDay, resourceId2, twoDays));
+
+        //then
+        assertEquals(24, availabilityFacade.find(resourceId, twoDays).size());
+        assertEquals(48, availabilityFacade.find(resourceId2, twoDays).size());
+        assertThat(availabilityFacade.loadCalendar(resourceId2, twoDays)).isEqualTo(Calendar.withAvailableSlots(resourceId2, twoDays));
+        assertTrue(availabilityFacade.block(resourceId, oneDay, Owner.newOne()));
+    }
+
     @Test
     void canCreateNewAvailabilitySlotsWithParentId() {
         //given
@@ -63,6 +88,62 @@ class AvailabilityFacadeTest {
 
     }
 
+    @Test
+    void freeChildrenOfParentAreRolledUpWithEveryChange() {
+        //given
+        ResourceId parentId = ResourceId.newOne();
+        ResourceId child = ResourceId.newOne();
+        ResourceId child2 = ResourceId.newOne();
+        ResourceId lazyChild = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        TimeSlot secondHour = new TimeSlot(firstHour.to(), firstHour.to().plus(Duration.ofHours(1)));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(child, parentId, oneDay);
+        availabilityFacade.createResourceSlots(child2, parentId, oneDay);
+
+        //when
+        availabilityFacade.block(child, firstHour, owner);
+        availabilityFacade.disable(child2, firstHour, owner);
+        availabilityFacade.block(child, secondHour, owner);
+        availabilityFacade.release(child, secondHour, owner);
+
+        //then
+        assertFalse(availabilityFacade.isAnyChildFree(parentId, firstHour));
+        assertTrue(availabilityFacade.isAnyChildFree(parentId, secondHour));
+        assertThat(availabilityFacade.freeChildren(parentId, oneDay)).hasSize(23).containsEntry(secondHour, 2);
+
+        //and
+        availabilityFacade.createLazyResourceSlots(lazyChild, parentId, oneDay, SegmentInMinutes.defaultSegment());
+        assertTrue(availabilityFacade.isAnyChildFree(parentId, firstHour));
+        availabilityFacade.block(lazyChild, oneDay, owner);
+        assertThat(availabilityFacade.freeChildren(parentId, oneDay)).doesNotContainKey(firstHour).containsEntry(secondHour, 2);
+    }
+
+    @Test
+    void compactChildrenAreRolledUpToo() {
+        //given
+        ResourceId parentId = ResourceId.newOne();
+        ResourceId compactChild = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        TimeSlot secondHour = new TimeSlot(firstHour.to(), firstHour.to().plus(Duration.ofHours(1)));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createCompactResourceSlots(compactChild, parentId, oneDay);
+
+        //when
+        availabilityFacade.block(compactChild, firstHour, owner);
+
+        //then
+        assertFalse(availabilityFacade.isAnyChildFree(parentId, firstHour));
+        assertTrue(availabilityFacade.isAnyChildFree(parentId, secondHour));
+        assertThat(availabilityFacade.freeChildren(parentId, oneDay)).hasSize(23).containsEntry(secondHour, 1);
+
+        //and
+        availabilityFacade.release(compactChild, firstHour, owner);
+        assertTrue(availabilityFacade.isAnyChildFree(parentId, firstHour));
+    }
+
     @Test
     void canBlockAvailabilities() {
         //given
@@ -234,6 +315,246 @@ class AvailabilityFacadeTest {
         assertThat(entireCalendar.takenBy(newRequester)).containsExactly(minimumSlot);
     }
 
+    @Test
+    void canBlockCompactAvailabilities() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot entireMonth = TimeSlot.createMonthlyTimeSlotAtUTC(2021, 1);
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        Owner owner = Owner.newOne();
+        availabilityFacade.createCompactResourceSlots(resourceId, entireMonth);
+
+        //when
+        boolean result = availabilityFacade.block(resourceId, oneDay, owner);
+
+        //then
+        assertTrue(result);
+        assertFalse(availabilityFacade.block(resourceId, entireMonth, Owner.newOne()));
+        Calendar monthlyCalendar = availabilityFacade.loadCalendar(resourceId, entireMonth);
+        assertThat(monthlyCalendar.takenBy(owner)).containsExactly(oneDay);
+        assertThat(monthlyCalendar.availableSlots()).containsExactly(new TimeSlot(oneDay.to(), entireMonth.to()));
+    }
+
+    @Test
+    void canReleaseCompactAvailabilities() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        Owner owner = Owner.newOne();
+        availabilityFacade.createCompactResourceSlots(resourceId, oneDay);
+        availabilityFacade.block(resourceId, oneDay, owner);
+
+        //when
+        boolean result = availabilityFacade.release(resourceId, oneDay, owner);
+
+        //then
+        assertTrue(result);
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+    }
+
+    @Test
+    void lazySlotsAreMaterializedOnlyWhereBlocked() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot entireMonth = TimeSlot.createMonthlyTimeSlotAtUTC(2021, 1);
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        Owner owner = Owner.newOne();
+        availabilityFacade.createLazyResourceSlots(resourceId, ResourceId.none(), entireMonth, SegmentInMinutes.defaultSegment());
+
+        //when
+        boolean result = availabilityFacade.block(resourceId, oneDay, owner);
+
+        //then
+        assertTrue(result);
+        assertEquals(24, availabilityFacade.find(resourceId, entireMonth).size());
+        assertFalse(availabilityFacade.block(resourceId, entireMonth, Owner.newOne()));
+        Calendar monthlyCalendar = availabilityFacade.loadCalendar(resourceId, entireMonth);
+        assertThat(monthlyCalendar.takenBy(owner)).containsExactly(oneDay);
+        assertThat(monthlyCalendar.availableSlots()).containsExactly(
+                new TimeSlot(entireMonth.from(), oneDay.from()), new TimeSlot(oneDay.to(), entireMonth.to()));
+    }
+
+    @Test
+    void blockadeTakesEntireSegmentsOfTheResource() {
+        //given
+        ResourceId rentedDaily = ResourceId.newOne();
+        ResourceId onCall = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot quarterOfAnHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofMinutes(15));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(rentedDaily, oneDay, SegmentInMinutes.of(24 * 60));
+        availabilityFacade.createResourceSlots(onCall, oneDay, SegmentInMinutes.minimalSegment());
+
+        //when
+        boolean rentedDailyBlocked = availabilityFacade.block(rentedDaily, quarterOfAnHour, owner);
+        boolean onCallBlocked = availabilityFacade.block(onCall, quarterOfAnHour, owner);
+
+        //then
+        assertTrue(rentedDailyBlocked);
+        assertTrue(onCallBlocked);
+        assertEquals(1, availabilityFacade.find(rentedDaily, oneDay).size());
+        assertThat(availabilityFacade.loadCalendar(rentedDaily, oneDay).takenBy(owner)).containsExactly(oneDay);
+        assertThat(availabilityFacade.loadCalendar(onCall, oneDay).takenBy(owner)).containsExactly(quarterOfAnHour);
+    }
+
+    @Test
+    void calendarIsLimitedToRequestedSlotEvenIfSegmentsReachBeyondIt() {
+        //given
+        ResourceId rentedDaily = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot quarterOfAnHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofMinutes(15));
+        availabilityFacade.createResourceSlots(rentedDaily, oneDay, SegmentInMinutes.of(24 * 60));
+
+        //when
+        Calendar calendar = availabilityFacade.loadCalendar(rentedDaily, quarterOfAnHour);
+
+        //then
+        assertThat(calendar.availableSlots()).containsExactly(quarterOfAnHour);
+    }
+
+    @Test
+    void slotsWithOtherSegmentThanResourceAlreadyHasAreRejected() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot nextDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+        availabilityFacade.createResourceSlots(resourceId, oneDay, SegmentInMinutes.of(24 * 60));
+
+        //expect
+        assertThrows(IllegalArgumentException.class, () -> availabilityFacade.createResourceSlots(resourceId, nextDay, SegmentInMinutes.minimalSegment()));
+        assertEquals(SegmentInMinutes.of(24 * 60), availabilityFacade.segmentOf(resourceId));
+        assertThat(availabilityFacade.loadCalendar(resourceId, nextDay).calendar()).isEmpty();
+    }
+
+    @Test
+    void canBlockManyResourcesAtOnce() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId compactResourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createCompactResourceSlots(compactResourceId, oneDay);
+
+        //when
+        BulkBlockadeResult result = availabilityFacade.blockAll(Map.of(resourceId, oneDay, compactResourceId, twoHours), owner);
+
+        //then
+        assertTrue(result.successful());
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay).takenBy(owner)).containsExactly(oneDay);
+        assertThat(availabilityFacade.loadCalendar(compactResourceId, oneDay).takenBy(owner)).containsExactly(twoHours);
+
+        //when
+        result = availabilityFacade.releaseAll(Map.of(resourceId, oneDay, compactResourceId, twoHours), owner);
+
+        //then
+        assertTrue(result.successful());
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+        assertThat(availabilityFacade.loadCalendar(compactResourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(compactResourceId, oneDay));
+    }
+
+    @Test
+    void nothingIsBlockedWhenAnyOfResourcesIsNotAvailable() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId takenResourceId = ResourceId.newOne();
+        ResourceId notCreatedResourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createResourceSlots(takenResourceId, oneDay);
+        availabilityFacade.block(takenResourceId, oneDay, Owner.newOne());
+
+        //when
+        BulkBlockadeResult result = availabilityFacade.blockAll(Map.of(resourceId, oneDay, takenResourceId, oneDay, notCreatedResourceId, oneDay), owner);
+
+        //then
+        assertFalse(result.successful());
+        assertEquals(Set.of(takenResourceId, notCreatedResourceId), result.conflicts());
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+    }
+
+    @Test
+    void conflictOfManyResourcesDoesNotRollBackRestOfCallersTransaction() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId takenResourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createResourceSlots(takenResourceId, oneDay);
+        availabilityFacade.block(takenResourceId, oneDay, Owner.newOne());
+
+        //when
+        BulkBlockadeResult result = new TransactionTemplate(transactionManager).execute(status -> {
+            availabilityFacade.block(resourceId, oneDay, owner);
+            return availabilityFacade.blockAll(Map.of(takenResourceId, oneDay), owner);
+        });
+
+        //then
+        assertFalse(result.successful());
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay).takenBy(owner)).containsExactly(oneDay);
+    }
+
+    @Test
+    void canFindAndReleaseEverythingBlockedByOwner() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId resourceId2 = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        TimeSlot lastHour = new TimeSlot(oneDay.to().minus(Duration.ofHours(1)), oneDay.to());
+        Owner owner = Owner.newOne();
+        Owner someoneElse = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+        availabilityFacade.createResourceSlots(resourceId2, oneDay);
+        availabilityFacade.block(resourceId, twoHours, owner);
+        availabilityFacade.block(resourceId, lastHour, owner);
+        availabilityFacade.block(resourceId2, twoHours, someoneElse);
+
+        //when
+        Calendars blocked = availabilityFacade.findBlockedBy(owner, oneDay);
+
+        //then
+        assertEquals(Set.of(resourceId), blocked.calendars().keySet());
+        assertThat(blocked.get(resourceId).takenBy(owner)).containsExactly(twoHours, lastHour);
+
+        //when
+        Calendars released = availabilityFacade.releaseAllOf(owner);
+
+        //then
+        assertEquals(blocked, released);
+        assertThat(availabilityFacade.findBlockedBy(owner, oneDay).calendars()).isEmpty();
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+        assertThat(availabilityFacade.loadCalendar(resourceId2, oneDay).takenBy(someoneElse)).containsExactly(twoHours);
+    }
+
+    @Test
+    void compactBlockadesAreFoundAndReleasedToo() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId compactResourceId = ResourceId.newOne();
+        TimeSlot twoDays = new TimeSlot(TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1).from(), TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2).to());
+        TimeSlot aroundMidnight = new TimeSlot(twoDays.from().plus(Duration.ofHours(23)), twoDays.from().plus(Duration.ofHours(25)));
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, twoDays);
+        availabilityFacade.createCompactResourceSlots(compactResourceId, twoDays);
+        availabilityFacade.block(resourceId, twoHours, owner);
+        availabilityFacade.block(compactResourceId, aroundMidnight, owner);
+
+        //when
+        Calendars blocked = availabilityFacade.findBlockedBy(owner, twoDays);
+        Calendars released = availabilityFacade.releaseAllOf(owner);
+
+        //then
+        assertThat(blocked.get(compactResourceId).takenBy(owner)).containsExactly(aroundMidnight);
+        assertEquals(blocked, released);
+        assertThat(availabilityFacade.findBlockedBy(owner, twoDays).calendars()).isEmpty();
+        assertThat(availabilityFacade.loadCalendar(compactResourceId, twoDays)).isEqualTo(Calendar.withAvailableSlots(compactResourceId, twoDays));
+    }
+
     @Test
     void resourceTakenOverEventIsEmittedAfterTakingOverTheResource() {
         //given
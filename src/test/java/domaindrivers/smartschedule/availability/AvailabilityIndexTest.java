@@ -0,0 +1,131 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+
+    static final ResourceId RESOURCE_ID = ResourceId.newOne();
+    static final Owner OWNER = Owner.newOne();
+
+    static final TimeSlot ONE_DAY = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+    static final TimeSlot FIRST_TWO_HOURS = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+
+    @Test
+    void answersOnlyWithinWarmedWindow() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(10);
+
+        //when
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, FIRST_TWO_HOURS)), FIRST_TWO_HOURS, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //then
+        assertThat(index.find(Set.of(RESOURCE_ID), FIRST_TWO_HOURS).get(RESOURCE_ID).availableSlots()).containsExactly(FIRST_TWO_HOURS);
+        assertTrue(index.find(Set.of(RESOURCE_ID), ONE_DAY).isEmpty());
+    }
+
+    @Test
+    void appliesBlockadesAndReleasesToWarmedTimeline() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(10);
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        TimeSlot rest = new TimeSlot(firstHour.to(), ONE_DAY.to());
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, ONE_DAY)), ONE_DAY, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //when
+        index.changed(RESOURCE_ID, firstHour, OWNER);
+
+        //then
+        Calendar calendar = index.find(Set.of(RESOURCE_ID), ONE_DAY).get(RESOURCE_ID);
+        assertThat(calendar.takenBy(OWNER)).containsExactly(firstHour);
+        assertThat(calendar.availableSlots()).containsExactly(rest);
+
+        //when
+        index.changed(RESOURCE_ID, firstHour, Owner.none());
+
+        //then
+        assertThat(index.find(Set.of(RESOURCE_ID), ONE_DAY).get(RESOURCE_ID).availableSlots()).containsExactly(ONE_DAY);
+    }
+
+    @Test
+    void createdSlotsFillGapsButChangesDoNot() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(10);
+        TimeSlot lastTwoHours = new TimeSlot(ONE_DAY.to().minus(Duration.ofHours(2)), ONE_DAY.to());
+        index.warm(Set.of(RESOURCE_ID), new Calendars(Map.of()), ONE_DAY, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //when
+        index.changed(RESOURCE_ID, lastTwoHours, OWNER);
+        index.created(RESOURCE_ID, FIRST_TWO_HOURS);
+
+        //then
+        Calendar calendar = index.find(Set.of(RESOURCE_ID), ONE_DAY).get(RESOURCE_ID);
+        assertThat(calendar.takenBy(OWNER)).isEmpty();
+        assertThat(calendar.availableSlots()).containsExactly(FIRST_TWO_HOURS);
+    }
+
+    @Test
+    void disabledIndexNeverAnswers() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.disabled();
+
+        //when
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, ONE_DAY)), ONE_DAY, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //then
+        assertTrue(index.find(Set.of(RESOURCE_ID), ONE_DAY).isEmpty());
+    }
+
+    @Test
+    void calendarsLoadedBeforeConcurrentChangeAreNotWarmed() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(10);
+        Map<ResourceId, Long> countersBeforeLoad = index.changeCounters(Set.of(RESOURCE_ID));
+
+        //when
+        index.changed(RESOURCE_ID, FIRST_TWO_HOURS, OWNER);
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, ONE_DAY)), ONE_DAY, countersBeforeLoad);
+
+        //then
+        assertTrue(index.find(Set.of(RESOURCE_ID), ONE_DAY).isEmpty());
+    }
+
+    @Test
+    void touchingWindowsAreMerged() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(10);
+        TimeSlot rest = new TimeSlot(FIRST_TWO_HOURS.to(), ONE_DAY.to());
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, FIRST_TWO_HOURS)), FIRST_TWO_HOURS, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //when
+        index.warm(Set.of(RESOURCE_ID), new Calendars(Map.of(RESOURCE_ID, new Calendar(RESOURCE_ID, Map.of(OWNER, List.of(rest))))), rest, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //then
+        Calendar calendar = index.find(Set.of(RESOURCE_ID), ONE_DAY).get(RESOURCE_ID);
+        assertThat(calendar.availableSlots()).containsExactly(FIRST_TWO_HOURS);
+        assertThat(calendar.takenBy(OWNER)).containsExactly(rest);
+    }
+
+    @Test
+    void eldestResourcesAreEvictedOverMaxSize() {
+        //given
+        AvailabilityIndex index = AvailabilityIndex.enabled(1);
+        ResourceId other = ResourceId.newOne();
+        index.warm(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, ONE_DAY)), ONE_DAY, index.changeCounters(Set.of(RESOURCE_ID)));
+
+        //when
+        index.warm(Set.of(other), Calendars.of(Calendar.withAvailableSlots(other, ONE_DAY)), ONE_DAY, index.changeCounters(Set.of(other)));
+
+        //then
+        assertTrue(index.find(Set.of(RESOURCE_ID), ONE_DAY).isEmpty());
+        assertThat(index.find(Set.of(other), ONE_DAY)).containsKey(other);
+    }
+}
@@ -0,0 +1,90 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.MockedEventPublisherConfiguration;
+import domaindrivers.smartschedule.TestDbConfiguration;
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = {TestDbConfiguration.class, MockedEventPublisherConfiguration.class})
+@Sql(scripts = "classpath:schema-availability.sql")
+class AvailabilityPartitionsTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    AvailabilityFacade availabilityFacade;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    AvailabilityPartitions availabilityPartitions;
+
+    @BeforeEach
+    void setup() {
+        availabilityPartitions = new AvailabilityPartitions(jdbcTemplate, new TransactionTemplate(transactionManager), Clock.systemUTC(), 3, 12);
+    }
+
+    @Test
+    void slotsAreStoredInMonthlyPartitions() {
+        //given
+        availabilityPartitions.createMonthlyPartitions(YearMonth.of(2031, 1), 1);
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2031, 1, 15);
+
+        //when
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+
+        //then
+        assertThat(availabilityPartitions.attachedPartitions()).contains("availabilities_y2031m01", "availabilities_y2031m02");
+        assertEquals(24, jdbcTemplate.queryForObject("select count(*) from availabilities_y2031m01 where resource_id = ?", Integer.class, resourceId.getId()));
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+    }
+
+    @Test
+    void rowsOfMonthWhichLandedInDefaultPartitionAreMovedToCreatedOne() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2033, 1, 15);
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+
+        //when
+        availabilityPartitions.createMonthlyPartitions(YearMonth.of(2033, 1), 0);
+
+        //then
+        assertEquals(24, jdbcTemplate.queryForObject("select count(*) from availabilities_y2033m01 where resource_id = ?", Integer.class, resourceId.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from availabilities_default where resource_id = ?", Integer.class, resourceId.getId()));
+        assertThat(availabilityFacade.loadCalendar(resourceId, oneDay)).isEqualTo(Calendar.withAvailableSlots(resourceId, oneDay));
+    }
+
+    @Test
+    void expiredPartitionsAreDetached() {
+        //given
+        availabilityPartitions.createMonthlyPartitions(YearMonth.of(2032, 1), 1);
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2032, 1, 15);
+        availabilityFacade.createResourceSlots(resourceId, oneDay);
+
+        //when
+        List<String> detached = availabilityPartitions.detachPartitionsBefore(YearMonth.of(2032, 2));
+
+        //then
+        assertThat(detached).contains("availabilities_y2032m01").doesNotContain("availabilities_y2032m02");
+        assertThat(availabilityPartitions.attachedPartitions()).doesNotContain("availabilities_y2032m01");
+        assertThat(availabilityFacade.find(resourceId, oneDay).hasNoSlots()).isTrue();
+    }
+}
@@ -0,0 +1,81 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarCacheTest {
+
+    static final ResourceId RESOURCE_ID = ResourceId.newOne();
+    static final ResourceId RESOURCE_ID_2 = ResourceId.newOne();
+    static final TimeSlot JAN_1 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+    static final TimeSlot JAN_2 = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 2);
+
+    @Test
+    void returnsCachedCalendarsAndCountsHitsAndMisses() {
+        //given
+        CalendarCache cache = new CalendarCache(10, Duration.ofMinutes(1));
+        cache.put(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, JAN_1)), JAN_1);
+
+        //when
+        cache.find(Set.of(RESOURCE_ID, RESOURCE_ID_2), JAN_1);
+
+        //then
+        assertEquals(new CalendarCacheStats(1, 1, 0, 1), cache.stats());
+        assertEquals(Calendar.withAvailableSlots(RESOURCE_ID, JAN_1), cache.find(Set.of(RESOURCE_ID), JAN_1).get(RESOURCE_ID));
+    }
+
+    @Test
+    void changeInvalidatesOnlyOverlappingWindows() {
+        //given
+        CalendarCache cache = new CalendarCache(10, Duration.ofMinutes(1));
+        cache.put(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, JAN_1)), JAN_1);
+        cache.put(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, JAN_2)), JAN_2);
+
+        //when
+        cache.invalidate(RESOURCE_ID, TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 2, Duration.ofHours(1)));
+
+        //then
+        assertTrue(cache.find(Set.of(RESOURCE_ID), JAN_1).containsKey(RESOURCE_ID));
+        assertFalse(cache.find(Set.of(RESOURCE_ID), JAN_2).containsKey(RESOURCE_ID));
+    }
+
+    @Test
+    void evictsOldestAndExpiredEntries() {
+        //given
+        CalendarCache cache = new CalendarCache(1, Duration.ofMinutes(1));
+        cache.put(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, JAN_1)), JAN_1);
+
+        //when
+        cache.put(Set.of(RESOURCE_ID_2), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID_2, JAN_1)), JAN_1);
+
+        //then
+        assertTrue(cache.find(Set.of(RESOURCE_ID), JAN_1).isEmpty());
+        assertEquals(1, cache.stats().evictions());
+
+        //and
+        CalendarCache expiring = new CalendarCache(10, Duration.ZERO);
+        expiring.put(Set.of(RESOURCE_ID), Calendars.of(Calendar.withAvailableSlots(RESOURCE_ID, JAN_1)), JAN_1);
+        assertTrue(expiring.find(Set.of(RESOURCE_ID), JAN_1).isEmpty());
+    }
+
+    @Test
+    void callersDoNotShareCachedCalendars() {
+        //given
+        CalendarCache cache = new CalendarCache(10, Duration.ofMinutes(1));
+        Calendar loaded = Calendar.withAvailableSlots(RESOURCE_ID, JAN_1);
+        Calendars calendars = new Calendars(new HashMap<>(Map.of(RESOURCE_ID, new Calendar(RESOURCE_ID, new HashMap<>(Map.of(Owner.none(), new ArrayList<>(List.of(JAN_1))))))));
+        cache.put(Set.of(RESOURCE_ID), calendars, JAN_1);
+
+        //when
+        calendars.get(RESOURCE_ID).calendar().get(Owner.none()).clear();
+        cache.find(Set.of(RESOURCE_ID), JAN_1).get(RESOURCE_ID).calendar().get(Owner.none()).clear();
+
+        //then
+        assertEquals(loaded, cache.find(Set.of(RESOURCE_ID), JAN_1).get(RESOURCE_ID));
+    }
+}
@@ -0,0 +1,54 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalendarsTest {
+
+    static final ResourceId RESOURCE_ID = ResourceId.newOne();
+    static final ResourceId RESOURCE_ID_2 = ResourceId.newOne();
+    static final ResourceId RESOURCE_ID_3 = ResourceId.newOne();
+
+    @Test
+    void findsWindowsWhenAllResourcesAreAvailable() {
+        //given
+        Calendars calendars = Calendars.of(
+                Calendar.withAvailableSlots(RESOURCE_ID, slot(8, 12), slot(13, 17)),
+                Calendar.withAvailableSlots(RESOURCE_ID_2, slot(10, 16)),
+                Calendar.withAvailableSlots(RESOURCE_ID_3, slot(15, 18), slot(6, 11)));
+
+        //when
+        Set<ResourceId> all = Set.of(RESOURCE_ID, RESOURCE_ID_2, RESOURCE_ID_3);
+
+        //then
+        assertThat(calendars.commonAvailableSlots(all, Duration.ZERO)).containsExactly(slot(10, 11), slot(15, 16));
+        assertThat(calendars.commonAvailableSlots(Set.of(RESOURCE_ID, RESOURCE_ID_2), Duration.ofHours(3))).containsExactly(slot(13, 16));
+    }
+
+    @Test
+    void findsEarliestCommonWindowOfGivenLength() {
+        //given
+        Calendars calendars = Calendars.of(
+                Calendar.withAvailableSlots(RESOURCE_ID, slot(8, 12), slot(13, 17)),
+                Calendar.withAvailableSlots(RESOURCE_ID_2, slot(10, 16)));
+        Set<ResourceId> both = Set.of(RESOURCE_ID, RESOURCE_ID_2);
+
+        //expect
+        assertThat(calendars.earliestCommonAvailableSlot(both, Duration.ofHours(2))).hasValue(slot(10, 12));
+        assertThat(calendars.earliestCommonAvailableSlot(both, Duration.ofHours(3))).hasValue(slot(13, 16));
+        assertThat(calendars.earliestCommonAvailableSlot(both, Duration.ofHours(4))).isEmpty();
+        assertThat(calendars.earliestCommonAvailableSlot(Set.of(RESOURCE_ID, ResourceId.newOne()), Duration.ofHours(1))).isEqualTo(Optional.empty());
+    }
+
+    static TimeSlot slot(int fromHour, int toHour) {
+        Instant day = Instant.parse("2021-01-01T00:00:00Z");
+        return new TimeSlot(day.plus(Duration.ofHours(fromHour)), day.plus(Duration.ofHours(toHour)));
+    }
+}
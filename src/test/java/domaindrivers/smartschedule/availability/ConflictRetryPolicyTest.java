@@ -0,0 +1,80 @@
+package domaindrivers.smartschedule.availability;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflictRetryPolicyTest {
+
+    List<SimpleTransactionStatus> transactions = new ArrayList<>();
+
+    ConflictRetryPolicy policy = new ConflictRetryPolicy(new TransactionTemplate() {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            SimpleTransactionStatus status = new SimpleTransactionStatus();
+            transactions.add(status);
+            return action.doInTransaction(status);
+        }
+    }, null, 3, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @Test
+    void staleWriteIsRetriedUntilApplied() {
+        //given
+        Queue<WriteOutcome> outcomes = new ArrayDeque<>(List.of(WriteOutcome.STALE, WriteOutcome.STALE, WriteOutcome.APPLIED));
+
+        //when
+        boolean result = policy.execute(outcomes::poll);
+
+        //then
+        assertTrue(result);
+        assertEquals(new ConflictStats(2, 2, 1, 0), policy.stats());
+    }
+
+    @Test
+    void everyAttemptRunsInTransactionOfItsOwnAndStaleOnesAreRolledBack() {
+        //given
+        Queue<WriteOutcome> outcomes = new ArrayDeque<>(List.of(WriteOutcome.STALE, WriteOutcome.APPLIED));
+
+        //when
+        policy.execute(outcomes::poll);
+
+        //then
+        assertEquals(2, transactions.size());
+        assertTrue(transactions.get(0).isRollbackOnly());
+        assertFalse(transactions.get(1).isRollbackOnly());
+    }
+
+    @Test
+    void rejectedWriteIsNotRetried() {
+        //given
+        Queue<WriteOutcome> outcomes = new ArrayDeque<>(List.of(WriteOutcome.REJECTED, WriteOutcome.APPLIED));
+
+        //when
+        boolean result = policy.execute(outcomes::poll);
+
+        //then
+        assertFalse(result);
+        assertEquals(1, outcomes.size());
+        assertTrue(transactions.get(0).isRollbackOnly());
+        assertEquals(new ConflictStats(0, 0, 0, 0), policy.stats());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        //when
+        boolean result = policy.execute(() -> WriteOutcome.STALE);
+
+        //then
+        assertFalse(result);
+        assertEquals(new ConflictStats(3, 2, 0, 1), policy.stats());
+    }
+}
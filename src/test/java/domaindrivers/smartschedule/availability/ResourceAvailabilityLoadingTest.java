@@ -26,7 +26,7 @@ public class ResourceAvailabilityLoadingTest {
 
     @BeforeEach
     void setup() {
-        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate);
+        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate, new AvailabilityParentRollups(jdbcTemplate));
     }
 
     @Test
@@ -5,18 +5,26 @@ import domaindrivers.smartschedule.TestDbConfiguration;
 import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(classes = {TestDbConfiguration.class, MockedEventPublisherConfiguration.class})
@@ -28,11 +36,14 @@ class ResourceAvailabilityOptimisticLockingTest {
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    AvailabilityFacade availabilityFacade;
+
     ResourceAvailabilityRepository resourceAvailabilityRepository;
 
     @BeforeEach
     void setup() {
-        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate);
+        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate, new AvailabilityParentRollups(jdbcTemplate));
     }
 
     @Test
@@ -81,4 +92,105 @@ class ResourceAvailabilityOptimisticLockingTest {
         assertTrue(resourceAvailabilityRepository.loadById(resourceAvailabilityId).version() < 10);
     }
 
-}
\ No newline at end of file
+    @Test
+    void groupedUpdateReturnsOnlyStaleSegments() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        TimeSlot twoHours = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(2));
+        ResourceGroupedAvailability grouped = ResourceGroupedAvailability.of(resourceId, twoHours);
+        resourceAvailabilityRepository.saveNew(grouped);
+        List<ResourceAvailability> loaded = resourceAvailabilityRepository.loadAllWithinSlot(resourceId, twoHours);
+        //and
+        ResourceAvailability changedInTheMeantime = resourceAvailabilityRepository.loadById(loaded.get(0).id());
+        changedInTheMeantime.block(Owner.newOne());
+        resourceAvailabilityRepository.saveCheckingVersion(changedInTheMeantime);
+
+        //when
+        loaded.forEach(ra -> ra.block(Owner.newOne()));
+        List<ResourceAvailability> stale = resourceAvailabilityRepository.saveReturningStale(loaded);
+
+        //then
+        assertEquals(List.of(loaded.get(0)), stale);
+        assertEquals(1, resourceAvailabilityRepository.loadById(loaded.get(1).id()).version());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ConcurrencyMode.class, names = {"ADVISORY_LOCK", "STRIPED_LOCK"})
+    void contendersOfLockedResourceDoNotLoseToEachOther(ConcurrencyMode mode) throws InterruptedException {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        Owner owner = Owner.newOne();
+        availabilityFacade.createResourceSlots(resourceId, ONE_MONTH);
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        for (int i = 1; i < 10; i++) {
+            executor.execute(() -> results.add(availabilityFacade.block(resourceId, ONE_MONTH, owner, mode)));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(9, results.size());
+        assertFalse(results.contains(false));
+    }
+
+    @Test
+    void concurrencyModeIsStoredWithTheResource() {
+        //given
+        ResourceId resourceId = ResourceId.newOne();
+        ResourceId otherResourceId = ResourceId.newOne();
+
+        //when
+        availabilityFacade.useConcurrencyMode(resourceId, ConcurrencyMode.ADVISORY_LOCK);
+
+        //then
+        ResourceLocks anotherInstance = new ResourceLocks(jdbcTemplate, ConcurrencyMode.OPTIMISTIC, 1, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        assertEquals(ConcurrencyMode.ADVISORY_LOCK, anotherInstance.modeOf(resourceId));
+        assertEquals(ConcurrencyMode.OPTIMISTIC, anotherInstance.modeOf(otherResourceId));
+    }
+
+    @Test
+    void modesAreCachedUntilChangedThroughTheLocks() {
+        //given
+        ResourceLocks locks = new ResourceLocks(jdbcTemplate, ConcurrencyMode.OPTIMISTIC, 1, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        ResourceId resourceId = ResourceId.newOne();
+        assertEquals(ConcurrencyMode.OPTIMISTIC, locks.modeOf(resourceId));
+
+        //when
+        new ResourceLocks(jdbcTemplate, ConcurrencyMode.OPTIMISTIC, 1, Duration.ofSeconds(1), Duration.ZERO).use(resourceId, ConcurrencyMode.ADVISORY_LOCK);
+
+        //then
+        assertEquals(ConcurrencyMode.OPTIMISTIC, locks.modeOf(resourceId));
+
+        //when
+        locks.use(resourceId, ConcurrencyMode.STRIPED_LOCK);
+
+        //then
+        assertEquals(ConcurrencyMode.STRIPED_LOCK, locks.modeOf(resourceId));
+    }
+
+    @Test
+    void stripeNotAcquiredInTimeFailsTheCall() throws InterruptedException {
+        //given
+        ResourceLocks locks = new ResourceLocks(jdbcTemplate, ConcurrencyMode.STRIPED_LOCK, 1, Duration.ofMillis(50), Duration.ZERO);
+        ResourceId resourceId = ResourceId.newOne();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> locks.withLock(resourceId, ConcurrencyMode.STRIPED_LOCK, () -> {
+            locked.countDown();
+            try {
+                return done.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        holder.start();
+        locked.await(10, TimeUnit.SECONDS);
+
+        //expect
+        assertThrows(CannotAcquireLockException.class, () -> locks.withLock(ResourceId.newOne(), ConcurrencyMode.STRIPED_LOCK, () -> true));
+        done.countDown();
+        holder.join();
+    }
+}
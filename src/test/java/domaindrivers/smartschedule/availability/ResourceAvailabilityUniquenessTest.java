@@ -27,7 +27,7 @@ class ResourceAvailabilityUniquenessTest {
 
     @BeforeEach
     void setup() {
-        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate);
+        resourceAvailabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate, new AvailabilityParentRollups(jdbcTemplate));
     }
 
     @Test
@@ -0,0 +1,101 @@
+package domaindrivers.smartschedule.availability;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//needs docker; run with: java -cp target/test-classes:<test classpath> domaindrivers.smartschedule.availability.ResourceContentionBenchmark
+//all threads block and release random hours of one hot resource; blocked/lost counters show how many calls succeeded
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class ResourceContentionBenchmark {
+
+    static final TimeSlot ONE_DAY = TimeSlot.createDailyTimeSlotAtUTC(2024, 1, 1);
+
+    @Param({"OPTIMISTIC", "ADVISORY_LOCK", "STRIPED_LOCK"})
+    ConcurrencyMode mode;
+
+    PostgreSQLContainer<?> postgres;
+    TransactionTemplate transaction;
+    AvailabilityFacade availabilityFacade;
+    ResourceId hotResource = ResourceId.newOne();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contender {
+        Owner owner = Owner.newOne();
+        public long blocked;
+        public long lost;
+    }
+
+    @Setup(Level.Trial)
+    public void startDatabase() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        new ResourceDatabasePopulator(new ClassPathResource("schema-availability.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        AvailabilityParentRollups parentRollups = new AvailabilityParentRollups(jdbcTemplate);
+        AvailabilitySegmentSizes segmentSizes = new AvailabilitySegmentSizes(jdbcTemplate);
+        ResourceAvailabilityRepository availabilityRepository = new ResourceAvailabilityRepository(jdbcTemplate, parentRollups);
+        availabilityFacade = new AvailabilityFacade(
+                ResourceAvailabilityStores.withRowsForNewSlots(
+                        new RowAvailabilityStore(availabilityRepository, new ResourceAvailabilityReadModel(jdbcTemplate), new ResourceAvailabilityBulkLoader(jdbcTemplate, parentRollups), segmentSizes),
+                        new CompactAvailabilityStore(new AvailabilityBitmapRepository(jdbcTemplate, parentRollups), segmentSizes),
+                        new LazyAvailabilityStore(new AvailabilityEnvelopeRepository(jdbcTemplate), availabilityRepository, segmentSizes)),
+                new AvailabilityUtilisationReadModel(jdbcTemplate),
+                parentRollups,
+                segmentSizes,
+                new ResourceLocks(jdbcTemplate, ConcurrencyMode.OPTIMISTIC, 64, Duration.ofSeconds(5), Duration.ofMinutes(1)),
+                ConflictRetryPolicy.noRetries(transaction, jdbcTemplate),
+                AvailabilityIndex.disabled(),
+                CalendarCache.disabled(),
+                event -> {
+                },
+                Clock.systemUTC());
+        availabilityFacade.createResourceSlots(hotResource, ONE_DAY);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void blockAndRelease(Contender contender) {
+        Instant start = ONE_DAY.from().plus(Duration.ofHours(ThreadLocalRandom.current().nextInt(24)));
+        TimeSlot slot = new TimeSlot(start, start.plus(Duration.ofHours(1)));
+        Boolean blocked = transaction.execute(status -> availabilityFacade.block(hotResource, slot, contender.owner, mode));
+        if (Boolean.TRUE.equals(blocked)) {
+            contender.blocked++;
+            transaction.execute(status -> availabilityFacade.release(hotResource, slot, contender.owner, mode));
+        } else {
+            contender.lost++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResourceContentionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.Set;
 
@@ -79,6 +80,24 @@ public class TakingRandomResourceTest {
         assertThat(taken1).isEmpty();
     }
 
+    @Test
+    void resourcePartiallyTakenWithinSlotIsNeverChosen() {
+        //given
+        ResourceId partiallyTaken = ResourceId.newOne();
+        ResourceId free = ResourceId.newOne();
+        TimeSlot oneDay = TimeSlot.createDailyTimeSlotAtUTC(2021, 1, 1);
+        TimeSlot firstHour = TimeSlot.createTimeSlotAtUTCOfDuration(2021, 1, 1, Duration.ofHours(1));
+        availabilityFacade.createResourceSlots(partiallyTaken, oneDay);
+        availabilityFacade.createResourceSlots(free, oneDay);
+        availabilityFacade.block(partiallyTaken, firstHour, Owner.newOne());
+
+        //when
+        Optional<ResourceId> taken = availabilityFacade.blockRandomAvailable(Set.of(partiallyTaken, free), oneDay, Owner.newOne());
+
+        //then
+        assertThat(taken).hasValue(free);
+    }
+
     void assertThatResourceIsTakeByOwner(ResourceId resourceId, Owner owner, TimeSlot oneDay) {
         ResourceGroupedAvailability resourceAvailability = availabilityFacade.find(resourceId, oneDay);
         assertThat(resourceAvailability.availabilities()).allMatch(ra -> ra.blockedBy().equals(owner));
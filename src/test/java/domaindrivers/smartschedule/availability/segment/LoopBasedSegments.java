@@ -0,0 +1,41 @@
+package domaindrivers.smartschedule.availability.segment;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+//previous implementation, kept as the reference for tests and the baseline for benchmarks
+class LoopBasedSegments {
+
+    static TimeSlot normalize(TimeSlot timeSlot, int segmentInMinutes) {
+        Instant start = timeSlot.from().truncatedTo(ChronoUnit.HOURS);
+        if (!start.plus(segmentInMinutes, ChronoUnit.MINUTES).isAfter(timeSlot.from())) {
+            while (start.isBefore(timeSlot.from())) {
+                start = start.plus(segmentInMinutes, ChronoUnit.MINUTES);
+            }
+        }
+        Instant end = timeSlot.to().truncatedTo(ChronoUnit.HOURS);
+        while (timeSlot.to().isAfter(end)) {
+            end = end.plus(segmentInMinutes, ChronoUnit.MINUTES);
+        }
+        TimeSlot normalized = new TimeSlot(start, end);
+        TimeSlot minimalSegment = new TimeSlot(start, start.plus(segmentInMinutes, ChronoUnit.MINUTES));
+        return normalized.within(minimalSegment) ? minimalSegment : normalized;
+    }
+
+    static List<TimeSlot> split(TimeSlot timeSlot, int segmentInMinutes) {
+        long numberOfSegments = (long) Math.ceil((double) Duration.between(timeSlot.from(), timeSlot.to()).toMinutes() / segmentInMinutes);
+        return Stream
+                .iterate(timeSlot.from(), currentStart -> currentStart.plus(segmentInMinutes, ChronoUnit.MINUTES))
+                .limit(numberOfSegments)
+                .map(currentStart -> {
+                    Instant segmentEnd = currentStart.plus(segmentInMinutes, ChronoUnit.MINUTES);
+                    return new TimeSlot(currentStart, timeSlot.to().isBefore(segmentEnd) ? timeSlot.to() : segmentEnd);
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package domaindrivers.smartschedule.availability.segment;
+
+import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//run with: java -cp target/test-classes:<test classpath> domaindrivers.smartschedule.availability.segment.SegmentsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentsBenchmark {
+
+    static final SegmentInMinutes FIFTEEN_MINUTES = SegmentInMinutes.of(15, 15);
+
+    TimeSlot notNormalizedWeek = new TimeSlot(Instant.parse("2023-09-04T08:52:00Z"), Instant.parse("2023-09-11T17:07:00Z"));
+
+    @Benchmark
+    public TimeSlot normalizeWithInstantLoops() {
+        return LoopBasedSegments.normalize(notNormalizedWeek, FIFTEEN_MINUTES.value());
+    }
+
+    @Benchmark
+    public TimeSlot normalizeWithEpochMinutes() {
+        return Segments.normalizeToSegmentBoundaries(notNormalizedWeek, FIFTEEN_MINUTES);
+    }
+
+    @Benchmark
+    public List<TimeSlot> splitWithStreamIterate() {
+        return LoopBasedSegments.split(LoopBasedSegments.normalize(notNormalizedWeek, FIFTEEN_MINUTES.value()), FIFTEEN_MINUTES.value());
+    }
+
+    @Benchmark
+    public List<TimeSlot> splitWithEpochMinutes() {
+        return Segments.split(notNormalizedWeek, FIFTEEN_MINUTES);
+    }
+
+    @Benchmark
+    public void iterateWithCursor(Blackhole blackhole) {
+        SegmentCursor cursor = Segments.cursor(notNormalizedWeek, FIFTEEN_MINUTES);
+        while (cursor.next()) {
+            blackhole.consume(cursor.segmentStart());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SegmentsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
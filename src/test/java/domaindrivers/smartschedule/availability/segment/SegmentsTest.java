@@ -4,6 +4,7 @@ import domaindrivers.smartschedule.shared.timeslot.TimeSlot;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -116,4 +117,24 @@ class SegmentsTest {
         assertEquals(Instant.parse("2023-09-09T00:59:00Z"), segments.get(1).to());
     }
 
-}
\ No newline at end of file
+    @Test
+    void cursorWalksTheSameSegmentsAsSplitting() {
+        //given
+        Instant start = Instant.parse("2023-09-09T00:10:00Z");
+        Instant end = Instant.parse("2023-09-09T02:05:00Z");
+        TimeSlot timeSlot = new TimeSlot(start, end);
+        SegmentInMinutes halfAnHour = SegmentInMinutes.of(30, FIFTEEN_MINUTES_SEGMENT_DURATION);
+
+        //when
+        List<TimeSlot> walked = new ArrayList<>();
+        SegmentCursor cursor = Segments.cursor(timeSlot, halfAnHour);
+        while (cursor.next()) {
+            walked.add(cursor.segment());
+        }
+
+        //then
+        assertEquals(Segments.split(timeSlot, halfAnHour), walked);
+        assertEquals(5, walked.size());
+    }
+
+}
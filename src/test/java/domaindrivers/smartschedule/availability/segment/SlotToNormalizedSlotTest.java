@@ -81,5 +81,22 @@ class SlotToNormalizedSlotTest {
         assertEquals(Instant.parse("2023-09-09T00:45:00Z"), normalized2.to());
     }
 
+    @Test
+    void givesSameBoundariesAsStepwiseNormalization() {
+        //given
+        Instant start = Instant.parse("2023-09-09T00:00:00Z");
+
+        //expect
+        for (int segment : new int[]{15, 30, 45, 60, 90, 24 * 60}) {
+            for (int startOffset = 0; startOffset < 24 * 60; startOffset += 7) {
+                for (int length = 0; length < 4 * 60; length += 11) {
+                    Instant from = start.plusSeconds(startOffset * 60L + 13);
+                    TimeSlot timeSlot = new TimeSlot(from, from.plusSeconds(length * 60L));
+                    assertEquals(LoopBasedSegments.normalize(timeSlot, segment),
+                            SLOT_TO_NORMALIZED_SLOT.apply(timeSlot, SegmentInMinutes.of(segment, FIFTEEN_MINUTES_SEGMENT_DURATION)));
+                }
+            }
+        }
+    }
 
-}
\ No newline at end of file
+}
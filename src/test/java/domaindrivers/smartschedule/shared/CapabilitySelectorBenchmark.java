@@ -0,0 +1,87 @@
+package domaindrivers.smartschedule.shared;
+
+import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilityCatalogue;
+import domaindrivers.smartschedule.shared.capability.CapabilitySet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//run with: java -cp target/test-classes:<test classpath> domaindrivers.smartschedule.shared.CapabilitySelectorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapabilitySelectorBenchmark {
+
+    @Param({"1", "3"})
+    int required;
+
+    List<CapabilitySelector> selectors;
+    List<CapabilitySelector.Compiled> compiled;
+    Set<Capability> requiredCapabilities;
+    CapabilitySet requiredSet;
+
+    @Setup
+    public void setup() {
+        selectors = IntStream.range(0, 1000)
+                .mapToObj(i -> CapabilitySelector.canPerformAllAtTheTime(Set.of(
+                        Capability.skill("SKILL-" + i % 40),
+                        Capability.skill("SKILL-" + (i + 1) % 40),
+                        Capability.asset("ASSET-" + i % 25),
+                        Capability.permission("PERMISSION-" + i % 10))))
+                .toList();
+        compiled = selectors.stream().map(CapabilitySelector::compile).toList();
+        requiredCapabilities = required == 1 ?
+                Set.of(Capability.skill("SKILL-7")) :
+                Set.of(Capability.skill("SKILL-7"), Capability.skill("SKILL-8"), Capability.asset("ASSET-7"));
+        requiredSet = CapabilityCatalogue.setOf(requiredCapabilities);
+    }
+
+    @Benchmark
+    public void copyingHashSet(Blackhole blackhole) {
+        for (CapabilitySelector selector : selectors) {
+            blackhole.consume(CopyingSelector.canPerform(selector, requiredCapabilities));
+        }
+    }
+
+    @Benchmark
+    public void selector(Blackhole blackhole) {
+        for (CapabilitySelector selector : selectors) {
+            blackhole.consume(selector.canPerform(requiredCapabilities));
+        }
+    }
+
+    @Benchmark
+    public void compiledSelector(Blackhole blackhole) {
+        for (CapabilitySelector.Compiled selector : compiled) {
+            blackhole.consume(selector.canPerform(requiredSet));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CapabilitySelectorBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    //previous implementation, kept as the baseline
+    static class CopyingSelector {
+
+        static boolean canPerform(CapabilitySelector selector, Set<Capability> capabilities) {
+            if (capabilities.size() == 1) {
+                return new HashSet<>(selector.capabilities()).containsAll(capabilities);
+            }
+            return selector.selectingPolicy().equals(CapabilitySelector.SelectingPolicy.ALL_SIMULTANEOUSLY) &&
+                    new HashSet<>(selector.capabilities()).containsAll(capabilities);
+        }
+    }
+}
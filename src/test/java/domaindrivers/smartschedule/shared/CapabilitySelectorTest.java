@@ -1,10 +1,16 @@
 package domaindrivers.smartschedule.shared;
 
 import domaindrivers.smartschedule.shared.capability.Capability;
+import domaindrivers.smartschedule.shared.capability.CapabilityCatalogue;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -41,4 +47,55 @@ class CapabilitySelectorTest {
         assertFalse(adminAndRust.canPerform(JAVA));
         assertFalse(adminAndRust.canPerform(new Capability("LAWYER", "PERMISSION")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void compiledSelectorMatchesTheSameCapabilities() {
+        //given
+        CapabilitySelector.Compiled adminOrRust = CapabilitySelector.canPerformOneOf(Set.of(BEING_AN_ADMIN, RUST)).compile();
+        CapabilitySelector.Compiled adminAndRust = CapabilitySelector.canPerformAllAtTheTime(Set.of(BEING_AN_ADMIN, RUST)).compile();
+
+        //expect
+        assertTrue(adminOrRust.canPerform(RUST));
+        assertTrue(adminOrRust.canPerform(CapabilityCatalogue.setOf(Set.of(BEING_AN_ADMIN))));
+        assertFalse(adminOrRust.canPerform(CapabilityCatalogue.setOf(Set.of(RUST, BEING_AN_ADMIN))));
+        assertFalse(adminOrRust.canPerform(new Capability("NEVER_SEEN_BEFORE", "SKILL")));
+        assertTrue(adminAndRust.canPerform(CapabilityCatalogue.setOf(Set.of(RUST, BEING_AN_ADMIN))));
+        assertFalse(adminAndRust.canPerform(CapabilityCatalogue.setOf(Set.of(RUST, BEING_AN_ADMIN, JAVA))));
+        assertFalse(adminAndRust.canPerform(JAVA));
+    }
+
+    @Test
+    void compiledSelectorMatchesLikeSelectorForRandomCapabilities() {
+        //given
+        long seed = System.nanoTime();
+        Random random = new Random(seed);
+        List<Capability> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            vocabulary.add(new Capability("RANDOM_" + i, i % 2 == 0 ? "SKILL" : "ASSET"));
+        }
+
+        for (int round = 0; round < 1000; round++) {
+            //given
+            CapabilitySelector selector = new CapabilitySelector(
+                    randomSubset(random, vocabulary, random.nextInt(8)),
+                    CapabilitySelector.SelectingPolicy.values()[random.nextInt(2)]);
+            Set<Capability> required = randomSubset(random, vocabulary, 1 + random.nextInt(4));
+            Capability single = vocabulary.get(random.nextInt(vocabulary.size()));
+
+            //when
+            CapabilitySelector.Compiled compiled = selector.compile();
+
+            //then
+            assertEquals(selector.canPerform(required), compiled.canPerform(CapabilityCatalogue.setOf(required)), "seed " + seed + ", " + selector + " for " + required);
+            assertEquals(selector.canPerform(single), compiled.canPerform(single), "seed " + seed + ", " + selector + " for " + single);
+        }
+    }
+
+    private static Set<Capability> randomSubset(Random random, List<Capability> vocabulary, int size) {
+        Set<Capability> subset = new HashSet<>();
+        while (subset.size() < size) {
+            subset.add(vocabulary.get(random.nextInt(vocabulary.size())));
+        }
+        return subset;
+    }
+}